@@ -0,0 +1,216 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the Chase-Lev work-stealing deque. The owner thread
+ * pushes and pops at the bottom of the deque without any atomic
+ * read-modify-write operations, except when it races with thieves for the last
+ * element. Thieves steal from the top of the deque with a single CAS. The
+ * elements are stored in a circular array that the owner grows when it is full.
+ *
+ * @see <a href="https://doi.org/10.1145/1073970.1073974" target="_blank">David
+ *      Chase and Yossi Lev. 2005. Dynamic circular work-stealing deque. In
+ *      Proceedings of the seventeenth annual ACM symposium on Parallelism in
+ *      algorithms and architectures (SPAA '05). ACM, New York, NY, USA,
+ *      21-28.</a>
+ */
+public class ChaseLevDeque<E> implements LockFreeDeque<E> {
+	private static final Logger logger = LoggerFactory.getLogger(ChaseLevDeque.class);
+
+	private static final int DEFAULT_CAPACITY = 32;
+
+	// Statistics
+	private final AtomicInteger numStealAttempts = new AtomicInteger(0);
+	private final AtomicInteger numSteals = new AtomicInteger(0);
+	private final AtomicInteger numStealAborts = new AtomicInteger(0);
+	private int numGrows = 0; // only updated by the owner
+
+	/*
+	 * Index of the top element. Incremented by thieves, and by the owner when it
+	 * takes the last element.
+	 */
+	private final AtomicLong top = new AtomicLong(0);
+
+	/*
+	 * Index one past the bottom element. Only written by the owner.
+	 */
+	private volatile long bottom = 0;
+
+	private volatile CircularArray<E> array;
+
+	/**
+	 * Creates an empty ChaseLevDeque with the default initial capacity.
+	 */
+	public ChaseLevDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty ChaseLevDeque with the specified initial capacity, rounded
+	 * up to the next power of two.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the circular array
+	 */
+	public ChaseLevDeque(int initialCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1;
+		this.array = new CircularArray<>(capacity);
+
+		logger.trace("Created CLDeque with capacity = " + capacity);
+	}
+
+	/**
+	 * Pushes the provided data onto the bottom of the deque, growing the circular
+	 * array if it is full. Must only be called by the owner thread.
+	 *
+	 * @param data
+	 *            the data to be pushed onto the bottom of the deque
+	 */
+	@Override
+	public void pushBottom(E data) {
+		long b = bottom;
+		long t = top.get();
+		CircularArray<E> a = array;
+
+		if (b - t > a.capacity() - 1) {
+			a = a.grow(b, t);
+			array = a;
+			numGrows++;
+		}
+
+		a.put(b, data);
+
+		// Publishes the element to thieves
+		bottom = b + 1;
+
+		logger.trace("Successful pushBottom: " + data);
+	}
+
+	/**
+	 * Pops the bottom of the deque. Must only be called by the owner thread.
+	 *
+	 * @return the old bottom of the deque, or <code>null</code> if the deque was
+	 *         empty or a thief stole the last element
+	 */
+	@Override
+	public E popBottom() {
+		long b = bottom - 1;
+		CircularArray<E> a = array;
+
+		// The volatile write must precede the read of top, so that a concurrent
+		// thief either sees the reserved element or is seen by the owner
+		bottom = b;
+		long t = top.get();
+
+		if (t > b) {
+			// Deque is empty
+			bottom = t;
+			return null;
+		}
+
+		E data = a.get(b);
+
+		if (t == b) {
+			// Last element, race with thieves for it
+			if (!top.compareAndSet(t, t + 1)) {
+				data = null;
+			}
+
+			bottom = t + 1;
+		}
+
+		logger.trace("Successful popBottom: " + data);
+		return data;
+	}
+
+	/**
+	 * Atomically removes the top of the deque.
+	 *
+	 * @return the old top of the deque, or <code>null</code> if the deque was
+	 *         empty or a concurrent operation removed the same element
+	 */
+	@Override
+	public E steal() {
+		numStealAttempts.incrementAndGet();
+
+		long t = top.get();
+		long b = bottom;
+		CircularArray<E> a = array;
+
+		if (t >= b) {
+			// Deque is empty
+			return null;
+		}
+
+		E data = a.get(t);
+
+		if (!top.compareAndSet(t, t + 1)) {
+			logger.trace("Aborted steal.");
+			numStealAborts.incrementAndGet();
+			return null;
+		}
+
+		logger.trace("Successful steal: " + data);
+		numSteals.incrementAndGet();
+		return data;
+	}
+
+	/**
+	 * Prints stealing statistics to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Steal attempts:       " + numStealAttempts.get());
+		stream.println("Successful steals:    " + numSteals.get());
+		stream.println("Aborted steals:       " + numStealAborts.get());
+		stream.println("Array grows:          " + numGrows);
+	}
+
+	/*
+	 * A power-of-two sized array indexed modulo its capacity. Arrays are never
+	 * reused after growing, so a thief holding an old array reads consistent
+	 * elements.
+	 */
+	private static class CircularArray<E> {
+		private final Object[] elements;
+		private final int mask;
+
+		CircularArray(int capacity) {
+			this.elements = new Object[capacity];
+			this.mask = capacity - 1;
+		}
+
+		int capacity() {
+			return elements.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		E get(long i) {
+			return (E) elements[(int) (i & mask)];
+		}
+
+		void put(long i, E data) {
+			elements[(int) (i & mask)] = data;
+		}
+
+		CircularArray<E> grow(long bottom, long top) {
+			CircularArray<E> a = new CircularArray<>(2 * capacity());
+
+			for (long i = top; i < bottom; i++) {
+				a.put(i, get(i));
+			}
+
+			return a;
+		}
+	}
+}
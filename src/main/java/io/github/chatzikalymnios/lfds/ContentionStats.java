@@ -0,0 +1,123 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.Collection;
+
+/**
+ * Contention counters of a single updating thread. Instrumented data structures
+ * hand out one instance per thread, so the counters can be incremented without
+ * any synchronization, and sum them up with {@link #aggregate(Collection, int)}
+ * once the run is over.
+ *
+ * Insert operations are pushes or enqueues, remove operations are pops or
+ * dequeues. The slot counters describe the elimination array (if any) of the
+ * data structure: a hit is an elimination that succeeded at that slot, a miss is
+ * an elimination attempt that did not.
+ */
+class ContentionStats {
+	private static final int HEATMAP_WIDTH = 40;
+
+	long numInserts;
+	long numRemoves;
+	long insertCasFailures;
+	long removeCasFailures;
+	long helpingEvents;
+	long slotCasFailures;
+	final long[] slotHits;
+	final long[] slotMisses;
+
+	/**
+	 * Creates zeroed counters for a data structure with <code>numSlots</code>
+	 * elimination slots.
+	 *
+	 * @param numSlots
+	 *            the size of the elimination array, or 0 if there is none
+	 */
+	ContentionStats(int numSlots) {
+		this.slotHits = new long[numSlots];
+		this.slotMisses = new long[numSlots];
+	}
+
+	/**
+	 * Records the outcome of an elimination attempt at the specified slot.
+	 *
+	 * @param slot
+	 *            the elimination slot that was used
+	 * @param eliminated
+	 *            whether the elimination succeeded
+	 */
+	void recordSlot(int slot, boolean eliminated) {
+		if (eliminated) {
+			slotHits[slot]++;
+		} else {
+			slotMisses[slot]++;
+		}
+	}
+
+	/**
+	 * Sums up the provided per-thread counters. If the counters are still being
+	 * updated, the sums are approximate.
+	 *
+	 * @param threadStats
+	 *            the per-thread counters to sum up
+	 * @param numSlots
+	 *            the size of the elimination array, or 0 if there is none
+	 * @return the aggregated counters
+	 */
+	static ContentionStats aggregate(Collection<ContentionStats> threadStats, int numSlots) {
+		ContentionStats total = new ContentionStats(numSlots);
+
+		for (ContentionStats stats : threadStats) {
+			total.numInserts += stats.numInserts;
+			total.numRemoves += stats.numRemoves;
+			total.insertCasFailures += stats.insertCasFailures;
+			total.removeCasFailures += stats.removeCasFailures;
+			total.helpingEvents += stats.helpingEvents;
+			total.slotCasFailures += stats.slotCasFailures;
+
+			for (int i = 0; i < numSlots; i++) {
+				total.slotHits[i] += stats.slotHits[i];
+				total.slotMisses[i] += stats.slotMisses[i];
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Prints the per-slot hits and misses to the specified stream, along with a
+	 * bar proportional to the number of attempts at each slot.
+	 *
+	 * @param stream
+	 *            PrintStream to print the heatmap to
+	 */
+	void printSlotHeatmap(PrintStream stream) {
+		long maxAttempts = 0;
+
+		for (int i = 0; i < slotHits.length; i++) {
+			maxAttempts = Math.max(maxAttempts, slotHits[i] + slotMisses[i]);
+		}
+
+		stream.println("Elimination slot heatmap (hits / misses):");
+
+		for (int i = 0; i < slotHits.length; i++) {
+			long attempts = slotHits[i] + slotMisses[i];
+			int barLength = (maxAttempts == 0) ? 0 : (int) (HEATMAP_WIDTH * attempts / maxAttempts);
+			StringBuilder bar = new StringBuilder();
+
+			for (int j = 0; j < barLength; j++) {
+				bar.append('#');
+			}
+
+			stream.println(String.format("  %4d: %10d / %-10d %s", i, slotHits[i], slotMisses[i], bar));
+		}
+	}
+
+	/**
+	 * Returns the average number of events per operation, or 0 if there were no
+	 * operations.
+	 */
+	static double perOp(long events, long ops) {
+		return (ops == 0) ? 0 : (double) events / ops;
+	}
+}
@@ -0,0 +1,10 @@
+package io.github.chatzikalymnios.lfds;
+
+/**
+ * Marks a stack or queue that keeps track of its size with a
+ * {@link DepthCounter}, i.e. whose inserts and removes pay for a counter
+ * update. The other stacks and queues derive their size from state they keep
+ * anyway.
+ */
+public interface DepthCounted {
+}
@@ -0,0 +1,79 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate number of elements of a stack or queue, kept as striped
+ * per-thread counters.
+ *
+ * Every thread that inserts or removes an element owns a stripe, which only it
+ * writes, so updating the count takes an ordered store with
+ * {@link AtomicLong#lazySet(long) lazySet} and no CAS. Data structures update
+ * the count after the CAS that completes an operation has succeeded, never
+ * inside a retry loop, and do not count eliminated pairs of operations, whose
+ * element never enters the data structure. {@link #size()} sums the stripes,
+ * which takes O(threads) time: proportional to the number of threads that ever
+ * updated the count, but independent of the number of elements. As the stripes
+ * are read one after the other while other threads update theirs, the sum is
+ * only exact when no operation is in progress.
+ *
+ * @see DepthCounted
+ */
+public class DepthCounter {
+	/*
+	 * Stripes of every thread that ever updated the count. Each stripe is
+	 * allocated by its own thread, which in practice keeps the stripes of
+	 * different threads on different cache lines.
+	 */
+	private final Queue<AtomicLong> stripes = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<AtomicLong> stripe = new ThreadLocal<AtomicLong>() {
+		@Override
+		protected AtomicLong initialValue() {
+			AtomicLong stripe = new AtomicLong(0);
+			stripes.add(stripe);
+			return stripe;
+		}
+	};
+
+	/**
+	 * Counts an element inserted by the calling thread.
+	 */
+	public void increment() {
+		AtomicLong myStripe = stripe.get();
+		myStripe.lazySet(myStripe.get() + 1);
+	}
+
+	/**
+	 * Counts an element removed by the calling thread.
+	 */
+	public void decrement() {
+		AtomicLong myStripe = stripe.get();
+		myStripe.lazySet(myStripe.get() - 1);
+	}
+
+	/**
+	 * Returns the approximate number of elements, in O(threads) time.
+	 *
+	 * @return the sum of the stripes, clamped to
+	 *         <code>[0, Integer.MAX_VALUE]</code>
+	 */
+	public int size() {
+		long sum = 0;
+
+		for (AtomicLong s : stripes) {
+			sum += s.get();
+		}
+
+		return (int) Math.min(Math.max(sum, 0), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns whether the approximate number of elements is 0.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+}
@@ -0,0 +1,312 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.chatzikalymnios.lfds.MichaelScottQueue.Node;
+
+/**
+ * An implementation of the Elimination-Backoff Queue, using a
+ * {@link MichaelScottQueue} as the central queue.
+ *
+ * An enqueue that loses the CAS on the central queue offers its node at a random
+ * slot of the elimination array, where a dequeue that lost its own CAS may take
+ * it. To preserve FIFO order, a dequeue may only take an offered node once the
+ * node is old enough, that is, once every item that was in the queue when the
+ * enqueue last tried to link the node has been dequeued. Sequence numbers of the
+ * central queue's nodes are used to check this condition.
+ *
+ * @see <a href="https://doi.org/10.1145/1073970.1074013" target="_blank">Mark
+ *      Moir, Daniel Nussbaum, Ori Shalev, and Nir Shavit. 2005. Using
+ *      elimination to implement scalable and lock-free FIFO queues. In
+ *      Proceedings of the seventeenth annual ACM symposium on Parallelism in
+ *      algorithms and architectures (SPAA '05). ACM, New York, NY, USA,
+ *      253-262.</a>
+ */
+public class EliminationBackoffQueue<E> implements LockFreeQueue<E> {
+	private static final Logger logger = LoggerFactory.getLogger(EliminationBackoffQueue.class);
+
+	private static final int DEFAULT_SPIN_DELAY = 100000; // nanoseconds
+
+	// Statistics
+	private final AtomicInteger numEnqueueElimAttempts = new AtomicInteger(0);
+	private final AtomicInteger numEnqueueEliminations = new AtomicInteger(0);
+	private final AtomicInteger numDequeueElimAttempts = new AtomicInteger(0);
+	private final AtomicInteger numDequeueEliminations = new AtomicInteger(0);
+
+	/*
+	 * Optional per-thread contention counters. Every thread registers its counters
+	 * the first time it reads them, so that they can be aggregated after the run.
+	 */
+	private final boolean instrumented;
+	private final ConcurrentLinkedQueue<ContentionStats> allThreadStats = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<ContentionStats> threadStats = new ThreadLocal<ContentionStats>() {
+		@Override
+		protected ContentionStats initialValue() {
+			ContentionStats stats = new ContentionStats(concurrencyLevel);
+			allThreadStats.add(stats);
+			return stats;
+		}
+	};
+
+	private MichaelScottQueue<E> queue;
+	private int concurrencyLevel;
+	private int spinDelay; // nanoseconds
+	private ArrayList<AtomicReference<Node<E>>> elimination;
+
+	/**
+	 * Creates an empty EliminationBackoffQueue with the specified
+	 * <code>concurrencyLevel</code> and the default <code>spinDelay</code> value.
+	 * The <code>concurrencyLevel</code> denotes the number of concurrently updating
+	 * threads and is used as the size of the internal elimination array. The
+	 * <code>spinDelay</code> denotes the amount of time (nanoseconds) to wait for
+	 * an elimination partner.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 */
+	public EliminationBackoffQueue(int concurrencyLevel) {
+		this(concurrencyLevel, DEFAULT_SPIN_DELAY);
+	}
+
+	/**
+	 * Creates an empty EliminationBackoffQueue with the specified
+	 * <code>concurrencyLevel</code> and <code>spinDelay</code>. The
+	 * <code>concurrencyLevel</code> denotes the number of concurrently updating
+	 * threads and is used as the size of the internal elimination array. The
+	 * <code>spinDelay</code> denotes the amount of time (nanoseconds) to wait for
+	 * an elimination partner.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 * @param spinDelay
+	 *            the amount of time (nanoseconds) to wait for an elimination
+	 *            partner
+	 */
+	public EliminationBackoffQueue(int concurrencyLevel, int spinDelay) {
+		this(concurrencyLevel, spinDelay, false);
+	}
+
+	/**
+	 * Creates an empty EliminationBackoffQueue with the specified
+	 * <code>concurrencyLevel</code> and <code>spinDelay</code>. If
+	 * <code>instrumented</code> is set, the central queue collects its contention
+	 * statistics and each thread records the outcome of its elimination attempts
+	 * at each slot of the elimination array.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 * @param spinDelay
+	 *            the amount of time (nanoseconds) to wait for an elimination
+	 *            partner
+	 * @param instrumented
+	 *            whether to collect contention statistics
+	 */
+	public EliminationBackoffQueue(int concurrencyLevel, int spinDelay, boolean instrumented) {
+		this.instrumented = instrumented;
+		this.queue = new MichaelScottQueue<>(instrumented);
+		this.concurrencyLevel = concurrencyLevel;
+		this.spinDelay = spinDelay;
+
+		this.elimination = new ArrayList<>(concurrencyLevel);
+		for (int i = 0; i < concurrencyLevel; i++) {
+			elimination.add(new AtomicReference<Node<E>>());
+		}
+
+		logger.trace("Created EBQueue with concurrencyLevel = " + concurrencyLevel);
+	}
+
+	/**
+	 * Creates a new node containing the provided data and either enqueues it
+	 * atomically on the central queue or hands it over to a concurrent
+	 * {@link #dequeue() dequeue} operation.
+	 *
+	 * @param data
+	 *            the data to be enqueued
+	 */
+	@Override
+	public void enqueue(E data) {
+		Node<E> n = new Node<>(data);
+
+		while (true) {
+			if (queue.tryEnqueue(n)) {
+				return;
+			}
+
+			logger.trace("Failed enqueue: " + data);
+
+			numEnqueueElimAttempts.incrementAndGet();
+
+			if (tryEliminateEnqueue(n)) {
+				numEnqueueEliminations.incrementAndGet();
+				logger.trace("Eliminated enqueue: " + data);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Atomically dequeues the head of the central queue or takes the node of a
+	 * concurrent {@link #enqueue(Object) enqueue} operation that is old enough.
+	 *
+	 * @return the old head of queue, or <code>null</code> if the queue was empty
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E dequeue() {
+		while (true) {
+			Object data = queue.tryDequeue();
+
+			if (data != MichaelScottQueue.RETRY) {
+				return (E) data;
+			}
+
+			logger.trace("Failed dequeue.");
+
+			numDequeueElimAttempts.incrementAndGet();
+			Node<E> n = tryEliminateDequeue();
+
+			if (n != null) {
+				numDequeueEliminations.incrementAndGet();
+				logger.trace("Eliminated dequeue: " + n.data);
+				return n.data;
+			}
+		}
+	}
+
+	/**
+	 * Offers the provided node at a random slot of the elimination array for
+	 * <code>spinDelay</code> nanoseconds. If the slot is occupied, the method
+	 * simply backs off for the same amount of time.
+	 *
+	 * @param n
+	 *            the node of the enqueue operation to eliminate
+	 * @return <code>true</code> if a dequeue took the node; <code>false</code>
+	 *         otherwise
+	 */
+	private boolean tryEliminateEnqueue(Node<E> n) {
+		int pos = ThreadLocalRandom.current().nextInt(concurrencyLevel);
+		AtomicReference<Node<E>> slot = elimination.get(pos);
+		boolean eliminated = false;
+
+		if (slot.compareAndSet(null, n)) {
+			spin(spinDelay);
+
+			// If the offer cannot be withdrawn, a dequeue has taken it
+			eliminated = !slot.compareAndSet(n, null);
+		} else {
+			spin(spinDelay);
+		}
+
+		if (instrumented) {
+			threadStats.get().recordSlot(pos, eliminated);
+		}
+
+		return eliminated;
+	}
+
+	/**
+	 * Watches a random slot of the elimination array for up to
+	 * <code>spinDelay</code> nanoseconds, waiting for a node that is old enough to
+	 * be dequeued.
+	 *
+	 * @return the taken node, or <code>null</code> if no node was taken
+	 */
+	private Node<E> tryEliminateDequeue() {
+		int pos = ThreadLocalRandom.current().nextInt(concurrencyLevel);
+		AtomicReference<Node<E>> slot = elimination.get(pos);
+		Node<E> taken = null;
+		long end = System.nanoTime() + spinDelay;
+
+		do {
+			Node<E> n = slot.get();
+
+			// Only items older than the head of the central queue may be taken
+			if (n != null && n.seq <= queue.headSeq() && slot.compareAndSet(n, null)) {
+				taken = n;
+				break;
+			}
+		} while (System.nanoTime() < end);
+
+		if (instrumented) {
+			threadStats.get().recordSlot(pos, taken != null);
+		}
+
+		return taken;
+	}
+
+	/**
+	 * Spins for <code>delay</code> nanoseconds.
+	 *
+	 * @param delay
+	 *            number of nanoseconds to spin for
+	 */
+	private void spin(int delay) {
+		long start = System.nanoTime();
+		long end = start + delay;
+
+		while (System.nanoTime() < end) {
+		}
+	}
+
+	/**
+	 * Returns the approximate number of elements of the central queue. Eliminated
+	 * pairs are not counted, as their node never enters the central queue.
+	 */
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	/**
+	 * Returns the elimination counters, followed by the statistics of the central
+	 * queue.
+	 */
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("enqueueEliminationAttempts", (long) numEnqueueElimAttempts.get());
+		stats.put("enqueueEliminations", (long) numEnqueueEliminations.get());
+		stats.put("dequeueEliminationAttempts", (long) numDequeueElimAttempts.get());
+		stats.put("dequeueEliminations", (long) numDequeueEliminations.get());
+		stats.putAll(queue.getStats());
+		return stats;
+	}
+
+	/**
+	 * Prints elimination statistics, followed by the statistics of the central
+	 * queue, to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Enqueue elimination attempts:    " + numEnqueueElimAttempts.get());
+		stream.println("Successful enqueue eliminations: " + numEnqueueEliminations.get());
+		stream.println("Dequeue elimination attempts:    " + numDequeueElimAttempts.get());
+		stream.println("Successful dequeue eliminations: " + numDequeueEliminations.get());
+
+		if (instrumented) {
+			ContentionStats.aggregate(allThreadStats, concurrencyLevel).printSlotHeatmap(stream);
+		}
+
+		stream.println();
+		queue.printStats(stream);
+	}
+}
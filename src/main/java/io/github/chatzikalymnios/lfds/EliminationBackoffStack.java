@@ -2,9 +2,13 @@ package io.github.chatzikalymnios.lfds;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,19 +16,39 @@ import org.slf4j.LoggerFactory;
 /**
  * An implementation of the Elimination-Backoff Stack.
  *
+ * The elimination protocol is selected at construction:
+ * <ul>
+ * <li>{@link Elimination#COLLISION}: the protocol of the paper, which publishes
+ * the operation in a per-thread location, swaps the thread id into a random
+ * slot of the collision array and pairs the two operations with further CAS
+ * operations on their locations</li>
+ * <li>{@link Elimination#ARENA}: an arena of exchange slots in the style of
+ * {@link java.util.concurrent.Exchanger}. A thread that finds a random slot
+ * empty installs its operation there and waits for a partner; a thread that
+ * finds an opposing operation waiting matches it with a single CAS that empties
+ * the slot, and then hands over the data.</li>
+ * </ul>
+ *
  * @see <a href="http://doi.acm.org/10.1145/1007912.1007944" target=
  *      "_blank">Danny Hendler, Nir Shavit, and Lena Yerushalmi. 2004. A
  *      scalable lock-free stack algorithm. In Proceedings of the sixteenth
  *      annual ACM symposium on Parallelism in algorithms and architectures
  *      (SPAA '04). ACM, New York, NY, USA, 206-215.</a>
  */
-public class EliminationBackoffStack<E> implements LockFreeStack<E> {
+public class EliminationBackoffStack<E> implements LockFreeStack<E>, DepthCounted {
 	private static final Logger logger = LoggerFactory.getLogger(EliminationBackoffStack.class);
 
 	private static enum StackOp {
 		PUSH, POP
 	};
 
+	/**
+	 * Elimination protocols.
+	 */
+	public static enum Elimination {
+		COLLISION, ARENA
+	};
+
 	private static final int EMPTY = -1;
 	private static final int DEFAULT_SPIN_DELAY = 100000; // nanoseconds
 
@@ -52,13 +76,36 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	private final AtomicInteger numPopElimAttempts = new AtomicInteger(0);
 	private final AtomicInteger numPopEliminations = new AtomicInteger(0);
 
+	/*
+	 * Approximate number of elements. Eliminated pairs are not counted, as their
+	 * cell never enters the stack.
+	 */
+	private final DepthCounter depth = new DepthCounter();
+
+	/*
+	 * Optional per-thread contention counters. Every thread registers its counters
+	 * the first time it reads them, so that they can be aggregated after the run.
+	 */
+	private final boolean instrumented;
+	private final ConcurrentLinkedQueue<ContentionStats> allThreadStats = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<ContentionStats> threadStats = new ThreadLocal<ContentionStats>() {
+		@Override
+		protected ContentionStats initialValue() {
+			ContentionStats stats = new ContentionStats(concurrencyLevel);
+			allThreadStats.add(stats);
+			return stats;
+		}
+	};
+
 	private Random random;
 
 	private AtomicReference<Cell> top;
 	private int concurrencyLevel;
 	private int spinDelay; // nanoseconds
+	private Elimination elimination;
 	private ArrayList<AtomicReference<ThreadInfo>> location;
 	private AtomicInteger[] collision;
+	private AtomicReferenceArray<ThreadInfo> arena;
 
 	/**
 	 * Creates an empty EliminationBackoffStack with the specified
@@ -90,6 +137,48 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	 *            partner
 	 */
 	public EliminationBackoffStack(int concurrencyLevel, int spinDelay) {
+		this(concurrencyLevel, spinDelay, false);
+	}
+
+	/**
+	 * Creates an empty EliminationBackoffStack with the specified
+	 * <code>concurrencyLevel</code> and <code>spinDelay</code>. If
+	 * <code>instrumented</code> is set, each thread counts its failed CAS
+	 * operations on the top of stack and on the collision array, along with the
+	 * outcome of its elimination attempts at each collision slot. The aggregated
+	 * counts are included in the {@link #printStats(PrintStream) statistics}.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 * @param spinDelay
+	 *            the amount of time (nanoseconds) to wait for an elimination
+	 *            partner
+	 * @param instrumented
+	 *            whether to collect contention statistics
+	 */
+	public EliminationBackoffStack(int concurrencyLevel, int spinDelay, boolean instrumented) {
+		this(concurrencyLevel, spinDelay, instrumented, Elimination.COLLISION);
+	}
+
+	/**
+	 * Creates an empty EliminationBackoffStack as above, which eliminates
+	 * operations with the provided protocol. With {@link Elimination#ARENA}, the
+	 * <code>concurrencyLevel</code> is used as the number of exchange slots.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 * @param spinDelay
+	 *            the amount of time (nanoseconds) to wait for an elimination
+	 *            partner
+	 * @param instrumented
+	 *            whether to collect contention statistics
+	 * @param elimination
+	 *            the elimination protocol
+	 */
+	public EliminationBackoffStack(int concurrencyLevel, int spinDelay, boolean instrumented,
+			Elimination elimination) {
+		this.instrumented = instrumented;
+		this.elimination = elimination;
 		this.random = new Random();
 		this.top = new AtomicReference<>(null);
 		this.concurrencyLevel = concurrencyLevel;
@@ -105,7 +194,10 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 			collision[i] = new AtomicInteger(EMPTY);
 		}
 
-		logger.trace("Created EBStack with concurrencyLevel = " + concurrencyLevel);
+		this.arena = new AtomicReferenceArray<>(concurrencyLevel);
+
+		logger.trace("Created EBStack with concurrencyLevel = " + concurrencyLevel + ", elimination = "
+				+ elimination);
 	}
 
 	/**
@@ -120,14 +212,24 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	public void push(E data) {
 		Cell cell = new Cell(data);
 		ThreadInfo myInfo = new ThreadInfo(threadId.get(), StackOp.PUSH, cell);
+		ContentionStats stats = instrumented ? threadStats.get() : null;
+
+		if (stats != null) {
+			stats.numInserts++;
+		}
 
 		while (true) {
 			if (tryPush(cell)) {
 				logger.trace("Successful push: " + data);
+				depth.increment();
 				return;
 			} else {
 				logger.trace("Failed push: " + data);
 
+				if (stats != null) {
+					stats.insertCasFailures++;
+				}
+
 				numPushElimAttempts.incrementAndGet();
 
 				if (tryEliminate(myInfo)) {
@@ -163,14 +265,28 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	public E pop() {
 		Cell cell = new Cell(null);
 		ThreadInfo myInfo = new ThreadInfo(threadId.get(), StackOp.POP, cell);
+		ContentionStats stats = instrumented ? threadStats.get() : null;
+
+		if (stats != null) {
+			stats.numRemoves++;
+		}
 
 		while (true) {
 			if (tryPop(cell)) {
 				logger.trace("Successful pop: " + cell.data);
+
+				if (cell.data != null) {
+					depth.decrement();
+				}
+
 				return cell.data;
 			} else {
 				logger.trace("Failed pop.");
 
+				if (stats != null) {
+					stats.removeCasFailures++;
+				}
+
 				numPopElimAttempts.incrementAndGet();
 
 				if (tryEliminate(myInfo)) {
@@ -206,6 +322,48 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 		return false;
 	}
 
+	/**
+	 * Makes a single attempt to eliminate a push of the provided data with a
+	 * concurrent pop, without accessing the top of stack. Lets tests exercise the
+	 * elimination protocols without relying on failed CAS operations.
+	 *
+	 * @param data
+	 *            the data to be pushed
+	 * @return <code>true</code> if the push was eliminated; <code>false</code>
+	 *         otherwise
+	 */
+	boolean tryEliminatePush(E data) {
+		ThreadInfo myInfo = new ThreadInfo(threadId.get(), StackOp.PUSH, new Cell(data));
+		numPushElimAttempts.incrementAndGet();
+
+		if (tryEliminate(myInfo)) {
+			numPushEliminations.incrementAndGet();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Makes a single attempt to eliminate a pop with a concurrent push, without
+	 * accessing the top of stack.
+	 *
+	 * @return the data of the eliminated push, or <code>null</code> if the pop was
+	 *         not eliminated
+	 * @see #tryEliminatePush(Object)
+	 */
+	E tryEliminatePop() {
+		ThreadInfo myInfo = new ThreadInfo(threadId.get(), StackOp.POP, new Cell(null));
+		numPopElimAttempts.incrementAndGet();
+
+		if (tryEliminate(myInfo)) {
+			numPopEliminations.incrementAndGet();
+			return myInfo.cell.data;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Attempts to eliminate the current thread's stack operation with a concurrent
 	 * opposing operation. The provided ThreadInfo object should be instantiated
@@ -222,13 +380,40 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	 *         <code>false</code> otherwise
 	 */
 	private boolean tryEliminate(ThreadInfo myInfo) {
+		int pos = random.nextInt(concurrencyLevel);
+		boolean eliminated = (elimination == Elimination.ARENA) ? tryExchange(myInfo, pos)
+				: tryEliminate(myInfo, pos);
+
+		if (instrumented) {
+			threadStats.get().recordSlot(pos, eliminated);
+		}
+
+		return eliminated;
+	}
+
+	/**
+	 * Attempts to eliminate the current thread's stack operation using the
+	 * specified position of the collision array.
+	 *
+	 * @param myInfo
+	 *            the ThreadInfo object describing the operation to eliminate
+	 * @param pos
+	 *            the position of the collision array to use
+	 * @return <code>true</code> if the elimination was successful;
+	 *         <code>false</code> otherwise
+	 * @see #tryEliminate(ThreadInfo)
+	 */
+	private boolean tryEliminate(ThreadInfo myInfo, int pos) {
 		int myId = myInfo.id;
 		location.get(myId).set(myInfo);
-		int pos = random.nextInt(concurrencyLevel);
 		int hisId = collision[pos].get();
 
 		while (!collision[pos].compareAndSet(hisId, myId)) {
 			hisId = collision[pos].get();
+
+			if (instrumented) {
+				threadStats.get().slotCasFailures++;
+			}
 		}
 
 		if (hisId != EMPTY) {
@@ -253,6 +438,82 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 		return false;
 	}
 
+	/**
+	 * Attempts to eliminate the current thread's stack operation using the
+	 * specified slot of the exchange arena. If the slot holds an opposing
+	 * operation, the operation is matched by emptying the slot with a single CAS.
+	 * If the slot is empty, the operation is installed in the slot, and the
+	 * thread waits for a partner until the spin delay has passed. An operation
+	 * that was not matched in time is withdrawn from the slot with a CAS; if
+	 * that CAS fails, a partner has just matched it.
+	 *
+	 * @param myInfo
+	 *            the ThreadInfo object describing the operation to eliminate
+	 * @param pos
+	 *            the slot of the arena to use
+	 * @return <code>true</code> if the elimination was successful;
+	 *         <code>false</code> otherwise
+	 * @see #tryEliminate(ThreadInfo)
+	 */
+	private boolean tryExchange(ThreadInfo myInfo, int pos) {
+		ThreadInfo hisInfo = arena.get(pos);
+
+		if (hisInfo != null) {
+			if (hisInfo.op == myInfo.op) {
+				return false;
+			}
+
+			if (arena.compareAndSet(pos, hisInfo, null)) {
+				// The waiting operation is ours, hand over the data
+				if (myInfo.op == StackOp.PUSH) {
+					hisInfo.match = myInfo.cell;
+				} else {
+					myInfo.cell = hisInfo.cell;
+					hisInfo.match = hisInfo.cell;
+				}
+
+				return true;
+			}
+
+			if (instrumented) {
+				threadStats.get().slotCasFailures++;
+			}
+
+			return false;
+		}
+
+		myInfo.match = null;
+
+		if (!arena.compareAndSet(pos, null, myInfo)) {
+			if (instrumented) {
+				threadStats.get().slotCasFailures++;
+			}
+
+			return false;
+		}
+
+		long end = System.nanoTime() + spinDelay;
+
+		while (myInfo.match == null && System.nanoTime() < end) {
+		}
+
+		if (myInfo.match == null && arena.compareAndSet(pos, myInfo, null)) {
+			return false;
+		}
+
+		// Matched, wait for the partner to hand over the data
+		Cell match;
+
+		while ((match = myInfo.match) == null) {
+		}
+
+		if (myInfo.op == StackOp.POP) {
+			myInfo.cell = match;
+		}
+
+		return true;
+	}
+
 	/**
 	 * Attempts to atomically eliminate the two provided operations that have
 	 * collided.
@@ -306,6 +567,42 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 		}
 	}
 
+	/**
+	 * Returns the approximate number of elements, read from striped per-thread
+	 * counters.
+	 */
+	@Override
+	public int size() {
+		return depth.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return depth.isEmpty();
+	}
+
+	/**
+	 * Returns the elimination counters and, if instrumented, the contention
+	 * counters.
+	 */
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("pushEliminationAttempts", (long) numPushElimAttempts.get());
+		stats.put("pushEliminations", (long) numPushEliminations.get());
+		stats.put("popEliminationAttempts", (long) numPopElimAttempts.get());
+		stats.put("popEliminations", (long) numPopEliminations.get());
+
+		if (instrumented) {
+			ContentionStats total = ContentionStats.aggregate(allThreadStats, 0);
+			stats.put("pushCasFailures", total.insertCasFailures);
+			stats.put("popCasFailures", total.removeCasFailures);
+			stats.put("slotCasFailures", total.slotCasFailures);
+		}
+
+		return stats;
+	}
+
 	/**
 	 * Prints elimination statistics to the specified stream.
 	 *
@@ -314,11 +611,29 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 	 */
 	@Override
 	public void printStats(PrintStream stream) {
+		int attempts = numPushElimAttempts.get() + numPopElimAttempts.get();
+		int eliminations = numPushEliminations.get() + numPopEliminations.get();
+
 		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Elimination protocol:         " + elimination.toString().toLowerCase());
 		stream.println("Push elimination attempts:    " + numPushElimAttempts.get());
 		stream.println("Successful push eliminations: " + numPushEliminations.get());
 		stream.println("Pop elimination attempts:     " + numPopElimAttempts.get());
 		stream.println("Successful pop eliminations:  " + numPopEliminations.get());
+		stream.println(String.format("Elimination success rate:     %.4f",
+				(attempts == 0) ? 0.0 : (double) eliminations / attempts));
+
+		if (instrumented) {
+			ContentionStats total = ContentionStats.aggregate(allThreadStats, concurrencyLevel);
+			stream.println(String.format("Push CAS failures:            %d (%.3f per push)", total.insertCasFailures,
+					ContentionStats.perOp(total.insertCasFailures, total.numInserts)));
+			stream.println(String.format("Pop CAS failures:             %d (%.3f per pop)", total.removeCasFailures,
+					ContentionStats.perOp(total.removeCasFailures, total.numRemoves)));
+			String slotLabel = (elimination == Elimination.ARENA) ? "Exchange slot CAS failures:   "
+					: "Collision slot CAS failures:  ";
+			stream.println(slotLabel + total.slotCasFailures);
+			total.printSlotHeatmap(stream);
+		}
 	}
 
 	private class Cell {
@@ -336,6 +651,12 @@ public class EliminationBackoffStack<E> implements LockFreeStack<E> {
 		StackOp op;
 		Cell cell;
 
+		/*
+		 * Set by the partner that matched this operation in the exchange arena:
+		 * the pushed cell for a POP, any non-null cell for a PUSH.
+		 */
+		volatile Cell match;
+
 		ThreadInfo(int threadId, StackOp op, Cell cell) {
 			this.id = threadId;
 			this.op = op;
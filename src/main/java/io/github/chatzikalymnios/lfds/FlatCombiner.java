@@ -0,0 +1,185 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The flat combining machinery shared by {@link FlatCombiningStack} and
+ * {@link FlatCombiningQueue}.
+ *
+ * Every thread owns a publication record, which is added to a shared
+ * publication list the first time the thread performs an operation. To perform
+ * an operation, a thread writes its request into its record and then either
+ * waits for the request to be served or, if the combiner lock is free, becomes
+ * the combiner. The combiner scans the publication list, collects the pending
+ * requests and applies them in a single batch to a sequential data structure.
+ *
+ * Note that flat combining is not lock-free: a preempted combiner delays every
+ * thread waiting for its request to be served.
+ *
+ * @see <a href="https://doi.org/10.1145/1810479.1810540" target="_blank">Danny
+ *      Hendler, Itai Incze, Nir Shavit, and Moran Tzafrir. 2010. Flat combining
+ *      and the synchronization-parallelism tradeoff. In Proceedings of the
+ *      twenty-second annual ACM symposium on Parallelism in algorithms and
+ *      architectures (SPAA '10). ACM, New York, NY, USA, 355-364.</a>
+ */
+abstract class FlatCombiner<E> {
+	/*
+	 * Number of times a waiting thread polls its record before yielding the
+	 * processor, so that an oversubscribed combiner gets a chance to run.
+	 */
+	private static final int SPINS_BEFORE_YIELD = 1000;
+
+	static enum Op {
+		INSERT, REMOVE
+	};
+
+	private final AtomicReference<Record<E>> publicationList = new AtomicReference<>(null);
+	private final AtomicBoolean lock = new AtomicBoolean(false);
+
+	private final ThreadLocal<Record<E>> myRecord = new ThreadLocal<Record<E>>() {
+		@Override
+		protected Record<E> initialValue() {
+			Record<E> record = new Record<>();
+
+			do {
+				record.next = publicationList.get();
+			} while (!publicationList.compareAndSet(record.next, record));
+
+			return record;
+		}
+	};
+
+	/*
+	 * Batches of the current combining pass. Only accessed by the thread holding
+	 * the combiner lock.
+	 */
+	private final List<Record<E>> inserts = new ArrayList<>();
+	private final List<Record<E>> removes = new ArrayList<>();
+
+	// Statistics, only updated by the thread holding the combiner lock
+	private long numCombines;
+	private long numCombinedOps;
+	private long numEliminations;
+
+	/**
+	 * Publishes the provided request and returns once it has been served, either
+	 * by a concurrent combiner or by the current thread.
+	 *
+	 * @param op
+	 *            the operation to perform
+	 * @param data
+	 *            the data to insert, or <code>null</code> for removals
+	 * @return the removed data for removals; <code>null</code> otherwise
+	 */
+	E apply(Op op, E data) {
+		Record<E> record = myRecord.get();
+		record.op = op;
+		record.data = data;
+		record.pending = true;
+
+		int spins = 0;
+
+		while (record.pending) {
+			if (!lock.get() && lock.compareAndSet(false, true)) {
+				try {
+					combine();
+				} finally {
+					lock.set(false);
+				}
+			} else if (++spins == SPINS_BEFORE_YIELD) {
+				spins = 0;
+				Thread.yield();
+			}
+		}
+
+		E result = record.result;
+		record.data = null;
+		record.result = null;
+		return result;
+	}
+
+	/**
+	 * Collects the pending requests of the publication list and serves them.
+	 */
+	private void combine() {
+		for (Record<E> record = publicationList.get(); record != null; record = record.next) {
+			if (record.pending) {
+				if (record.op == Op.INSERT) {
+					inserts.add(record);
+				} else {
+					removes.add(record);
+				}
+			}
+		}
+
+		numCombines++;
+		numCombinedOps += inserts.size() + removes.size();
+		numEliminations += combine(inserts, removes);
+
+		for (Record<E> record : inserts) {
+			record.pending = false;
+		}
+
+		for (Record<E> record : removes) {
+			record.pending = false;
+		}
+
+		inserts.clear();
+		removes.clear();
+	}
+
+	/**
+	 * Applies the provided batch of concurrent requests to the sequential data
+	 * structure. The result of every removal must be stored in its record's
+	 * <code>result</code> field. The records are released by the caller.
+	 *
+	 * @param inserts
+	 *            the pending insert requests
+	 * @param removes
+	 *            the pending remove requests
+	 * @return the number of insert/remove pairs that were eliminated without
+	 *         touching the sequential data structure
+	 */
+	abstract int combine(List<Record<E>> inserts, List<Record<E>> removes);
+
+	/**
+	 * Adds the combining statistics to the provided map.
+	 *
+	 * @param stats
+	 *            the map to add the statistics to
+	 */
+	void putCombiningStats(Map<String, Long> stats) {
+		stats.put("combiningPasses", numCombines);
+		stats.put("combinedOperations", numCombinedOps);
+		stats.put("eliminatedPairs", numEliminations);
+	}
+
+	/**
+	 * Prints combining statistics to the specified stream. Must only be called
+	 * once the data structure is no longer updated.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	void printCombiningStats(PrintStream stream) {
+		double avgBatch = (numCombines == 0) ? 0 : (double) numCombinedOps / numCombines;
+
+		stream.println("Combining passes:         " + numCombines);
+		stream.println("Combined operations:      " + numCombinedOps);
+		stream.println(String.format("Average batch size:       %.2f", avgBatch));
+		stream.println("Eliminated pairs:         " + numEliminations);
+	}
+
+	static class Record<E> {
+		Op op;
+		E data;
+		E result;
+		volatile boolean pending;
+		Record<E> next;
+	}
+}
@@ -0,0 +1,138 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of a flat-combining queue. The combiner serves the dequeue
+ * requests of each batch from the sequential queue first. Once the queue is
+ * empty, the remaining dequeues are paired with the enqueues of the same batch
+ * without touching the queue. Null elements are not supported.
+ *
+ * @see FlatCombiner
+ */
+public class FlatCombiningQueue<E> implements LockFreeQueue<E> {
+	private static final Logger logger = LoggerFactory.getLogger(FlatCombiningQueue.class);
+
+	/*
+	 * Sequential queue, only accessed by the thread holding the combiner lock.
+	 */
+	private final ArrayDeque<E> queue = new ArrayDeque<>();
+
+	/*
+	 * Size of the sequential queue, written by the combiner after every pass.
+	 */
+	private volatile int size;
+
+	private final FlatCombiner<E> combiner = new FlatCombiner<E>() {
+		@Override
+		int combine(List<Record<E>> inserts, List<Record<E>> removes) {
+			int i = 0;
+			int j = 0;
+
+			while (i < removes.size() && !queue.isEmpty()) {
+				removes.get(i++).result = queue.poll();
+			}
+
+			// The queue is empty, so each dequeue may return a concurrent enqueue's data
+			int numPairs = 0;
+
+			while (i < removes.size() && j < inserts.size()) {
+				removes.get(i++).result = inserts.get(j++).data;
+				numPairs++;
+			}
+
+			while (i < removes.size()) {
+				removes.get(i++).result = null;
+			}
+
+			while (j < inserts.size()) {
+				queue.add(inserts.get(j++).data);
+			}
+
+			size = queue.size();
+
+			return numPairs;
+		}
+	};
+
+	/**
+	 * Creates an empty FlatCombiningQueue.
+	 */
+	public FlatCombiningQueue() {
+		logger.trace("Created FCQueue");
+	}
+
+	/**
+	 * Publishes an enqueue request for the provided data and waits until a
+	 * combiner has served it.
+	 *
+	 * @param data
+	 *            the data to be enqueued
+	 * @throws NullPointerException
+	 *             if <code>data</code> is <code>null</code>
+	 */
+	@Override
+	public void enqueue(E data) {
+		if (data == null) {
+			throw new NullPointerException();
+		}
+
+		combiner.apply(FlatCombiner.Op.INSERT, data);
+		logger.trace("Successful enqueue: " + data);
+	}
+
+	/**
+	 * Publishes a dequeue request and waits until a combiner has served it.
+	 *
+	 * @return the old head of queue, or <code>null</code> if the queue was empty
+	 */
+	@Override
+	public E dequeue() {
+		E data = combiner.apply(FlatCombiner.Op.REMOVE, null);
+		logger.trace("Successful dequeue: " + data);
+		return data;
+	}
+
+	/**
+	 * Returns the number of elements after the most recent combining pass, which
+	 * only the combiner updates. Pairs eliminated within a pass are not counted.
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the combining statistics.
+	 */
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		combiner.putCombiningStats(stats);
+		return stats;
+	}
+
+	/**
+	 * Prints combining statistics to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		combiner.printCombiningStats(stream);
+	}
+}
@@ -0,0 +1,129 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of a flat-combining stack. The combiner eliminates the push
+ * and pop requests of each batch against each other and applies the remaining
+ * requests to a sequential stack. Null elements are not supported.
+ *
+ * @see FlatCombiner
+ */
+public class FlatCombiningStack<E> implements LockFreeStack<E> {
+	private static final Logger logger = LoggerFactory.getLogger(FlatCombiningStack.class);
+
+	/*
+	 * Sequential stack, only accessed by the thread holding the combiner lock.
+	 */
+	private final ArrayDeque<E> stack = new ArrayDeque<>();
+
+	/*
+	 * Size of the sequential stack, written by the combiner after every pass.
+	 */
+	private volatile int size;
+
+	private final FlatCombiner<E> combiner = new FlatCombiner<E>() {
+		@Override
+		int combine(List<Record<E>> inserts, List<Record<E>> removes) {
+			int numPairs = Math.min(inserts.size(), removes.size());
+
+			// Each pop returns the data of a concurrent push
+			for (int i = 0; i < numPairs; i++) {
+				removes.get(i).result = inserts.get(i).data;
+			}
+
+			for (int i = numPairs; i < inserts.size(); i++) {
+				stack.push(inserts.get(i).data);
+			}
+
+			for (int i = numPairs; i < removes.size(); i++) {
+				removes.get(i).result = stack.poll();
+			}
+
+			size = stack.size();
+
+			return numPairs;
+		}
+	};
+
+	/**
+	 * Creates an empty FlatCombiningStack.
+	 */
+	public FlatCombiningStack() {
+		logger.trace("Created FCStack");
+	}
+
+	/**
+	 * Publishes a push request for the provided data and waits until a combiner
+	 * has served it.
+	 *
+	 * @param data
+	 *            the data to be pushed onto the stack
+	 * @throws NullPointerException
+	 *             if <code>data</code> is <code>null</code>
+	 */
+	@Override
+	public void push(E data) {
+		if (data == null) {
+			throw new NullPointerException();
+		}
+
+		combiner.apply(FlatCombiner.Op.INSERT, data);
+		logger.trace("Successful push: " + data);
+	}
+
+	/**
+	 * Publishes a pop request and waits until a combiner has served it.
+	 *
+	 * @return the old top of stack, or <code>null</code> if the stack was empty
+	 */
+	@Override
+	public E pop() {
+		E data = combiner.apply(FlatCombiner.Op.REMOVE, null);
+		logger.trace("Successful pop: " + data);
+		return data;
+	}
+
+	/**
+	 * Returns the number of elements after the most recent combining pass, which
+	 * only the combiner updates. Pairs eliminated within a pass are not counted.
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the combining statistics.
+	 */
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		combiner.putCombiningStats(stats);
+		return stats;
+	}
+
+	/**
+	 * Prints combining statistics to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		combiner.printCombiningStats(stream);
+	}
+}
@@ -0,0 +1,248 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the Harris-Michael lock-free linked list, used as a set.
+ *
+ * Nodes are sorted by an unsigned integer key derived from the item's hash
+ * code; items with equal keys are kept next to each other. A node is removed
+ * by first marking its next reference (logical deletion) and then unlinking it
+ * (physical deletion). Traversals that encounter marked nodes unlink them on the
+ * way.
+ *
+ * The list operations are also available relative to an arbitrary sentinel
+ * node of the list, which {@link SplitOrderedHashSet} uses to start its
+ * searches at the sentinel node of a bucket. Sentinel nodes have a
+ * <code>null</code> item and are never removed. Null items are not supported.
+ *
+ * @see <a href="https://doi.org/10.1007/3-540-45414-4_21" target="_blank">Timothy
+ *      L. Harris. 2001. A Pragmatic Implementation of Non-blocking
+ *      Linked-Lists. In Proceedings of the 15th International Conference on
+ *      Distributed Computing (DISC '01). Springer-Verlag, London, UK,
+ *      300-314.</a>
+ * @see <a href="https://doi.org/10.1145/564870.564881" target="_blank">Maged M.
+ *      Michael. 2002. High performance dynamic lock-free hash tables and
+ *      list-based sets. In Proceedings of the fourteenth annual ACM symposium on
+ *      Parallel algorithms and architectures (SPAA '02). ACM, New York, NY, USA,
+ *      73-82.</a>
+ */
+public class HarrisMichaelList<E> implements LockFreeSet<E> {
+	private static final Logger logger = LoggerFactory.getLogger(HarrisMichaelList.class);
+
+	// Statistics
+	private final AtomicInteger numRetries = new AtomicInteger(0);
+
+	private final Node<E> head;
+
+	/**
+	 * Creates an empty HarrisMichaelList.
+	 */
+	public HarrisMichaelList() {
+		this.head = new Node<>(0, null);
+
+		logger.trace("Created HMList");
+	}
+
+	@Override
+	public boolean add(E item) {
+		return add(head, new Node<>(hash(item), item)) == null;
+	}
+
+	@Override
+	public boolean remove(E item) {
+		return remove(head, hash(item), item);
+	}
+
+	@Override
+	public boolean contains(E item) {
+		return contains(head, hash(item), item);
+	}
+
+	/**
+	 * Returns the head (sentinel) node of the list.
+	 */
+	Node<E> head() {
+		return head;
+	}
+
+	/**
+	 * Inserts the provided node into the list, searching from the
+	 * <code>start</code> sentinel node, unless a node with the same key and item
+	 * is already present.
+	 *
+	 * @return <code>null</code> if the node was inserted; the node already present
+	 *         otherwise
+	 */
+	Node<E> add(Node<E> start, Node<E> node) {
+		while (true) {
+			Window<E> window = find(start, node.key, node.item);
+
+			if (window.found()) {
+				return window.curr;
+			}
+
+			node.next.set(window.curr, false);
+
+			if (window.pred.next.compareAndSet(window.curr, node, false, false)) {
+				logger.trace("Successful add: " + node.item);
+				return null;
+			}
+
+			numRetries.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes the node with the provided key and item from the list, searching
+	 * from the <code>start</code> sentinel node.
+	 *
+	 * @return <code>true</code> if the node was removed; <code>false</code> if it
+	 *         was not present
+	 */
+	boolean remove(Node<E> start, int key, E item) {
+		while (true) {
+			Window<E> window = find(start, key, item);
+
+			if (!window.found()) {
+				return false;
+			}
+
+			Node<E> curr = window.curr;
+			Node<E> succ = curr.next.getReference();
+
+			// Logical deletion
+			if (!curr.next.compareAndSet(succ, succ, false, true)) {
+				numRetries.incrementAndGet();
+				continue;
+			}
+
+			// Physical deletion, left to later traversals if it fails
+			window.pred.next.compareAndSet(curr, succ, false, false);
+
+			logger.trace("Successful remove: " + item);
+			return true;
+		}
+	}
+
+	/**
+	 * Returns whether a node with the provided key and item is present in the
+	 * list, searching from the <code>start</code> sentinel node. Marked nodes are
+	 * skipped, but not unlinked.
+	 */
+	boolean contains(Node<E> start, int key, E item) {
+		Node<E> curr = start.next.getReference();
+
+		while (curr != null && !reached(curr, key, item)) {
+			curr = curr.next.getReference();
+		}
+
+		return curr != null && curr.key == key && matches(curr, item) && !curr.next.isMarked();
+	}
+
+	/**
+	 * Finds the first node, after the <code>start</code> sentinel node, that
+	 * either has the provided key and item or has a larger key, along with its
+	 * predecessor. Marked nodes are unlinked on the way.
+	 */
+	private Window<E> find(Node<E> start, int key, E item) {
+		boolean[] marked = { false };
+
+		retry: while (true) {
+			Node<E> pred = start;
+			Node<E> curr = pred.next.getReference();
+
+			while (curr != null) {
+				Node<E> succ = curr.next.get(marked);
+
+				if (marked[0]) {
+					if (!pred.next.compareAndSet(curr, succ, false, false)) {
+						numRetries.incrementAndGet();
+						continue retry;
+					}
+
+					curr = succ;
+					continue;
+				}
+
+				if (reached(curr, key, item)) {
+					break;
+				}
+
+				pred = curr;
+				curr = succ;
+			}
+
+			return new Window<>(pred, curr, key, item);
+		}
+	}
+
+	/**
+	 * Returns whether a search for the provided key and item should stop at the
+	 * provided node.
+	 */
+	private static <E> boolean reached(Node<E> node, int key, E item) {
+		int cmp = Integer.compareUnsigned(node.key, key);
+		return (cmp > 0) || (cmp == 0 && matches(node, item));
+	}
+
+	private static <E> boolean matches(Node<E> node, E item) {
+		return (item == null) ? (node.item == null) : item.equals(node.item);
+	}
+
+	/**
+	 * Spreads the item's hash code, so that its high bits also take part in the
+	 * ordering of the list and in bucket selection.
+	 */
+	static int hash(Object item) {
+		int h = item.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Prints statistics about the list to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("CAS retries:           " + numRetries.get());
+	}
+
+	static class Node<E> {
+		final int key;
+		final E item;
+		final AtomicMarkableReference<Node<E>> next;
+
+		Node(int key, E item) {
+			this.key = key;
+			this.item = item;
+			this.next = new AtomicMarkableReference<>(null, false);
+		}
+	}
+
+	private static class Window<E> {
+		final Node<E> pred;
+		final Node<E> curr;
+		final int key;
+		final E item;
+
+		Window(Node<E> pred, Node<E> curr, int key, E item) {
+			this.pred = pred;
+			this.curr = curr;
+			this.key = key;
+			this.item = item;
+		}
+
+		boolean found() {
+			return curr != null && curr.key == key && matches(curr, item);
+		}
+	}
+}
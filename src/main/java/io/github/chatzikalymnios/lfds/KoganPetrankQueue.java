@@ -0,0 +1,381 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the Kogan-Petrank wait-free queue.
+ *
+ * The queue has the same linked structure as the Michael-Scott queue, but every
+ * operation first announces itself in a per-thread operation descriptor that
+ * carries a phase number larger than the phase of every operation announced
+ * before it. Each thread then helps every pending operation with a phase up to
+ * its own to completion, including its own operation. An operation therefore
+ * completes after a bounded number of steps, regardless of the other threads.
+ *
+ * Each thread that accesses the queue is assigned a slot in the descriptor
+ * array the first time it does so, so the queue supports at most
+ * <code>maxThreads</code> distinct threads over its lifetime.
+ *
+ * @see <a href="https://doi.org/10.1145/1941553.1941585" target="_blank">Alex
+ *      Kogan and Erez Petrank. 2011. Wait-free queues with multiple enqueuers
+ *      and dequeuers. In Proceedings of the 16th ACM symposium on Principles and
+ *      practice of parallel programming (PPoPP '11). ACM, New York, NY, USA,
+ *      223-234.</a>
+ */
+public class KoganPetrankQueue<E> implements LockFreeQueue<E>, DepthCounted {
+	private static final Logger logger = LoggerFactory.getLogger(KoganPetrankQueue.class);
+
+	private static final int NO_THREAD = -1;
+
+	// Indices of the per-thread statistics counters
+	private static final int ENQUEUES = 0;
+	private static final int DEQUEUES = 1;
+	private static final int HELPED = 2;
+	private static final int NUM_COUNTERS = 3;
+
+	/*
+	 * Statistics. An operation counts as helped if the CAS that marked it as
+	 * completed in its descriptor was made by another thread.
+	 */
+	private final ThreadCounters counters = new ThreadCounters(NUM_COUNTERS);
+
+	/*
+	 * Approximate number of elements, updated by every thread after its own
+	 * operation has completed, not by the threads that help it.
+	 */
+	private final DepthCounter depth = new DepthCounter();
+
+	private final AtomicReference<Node<E>> queueHead;
+	private final AtomicReference<Node<E>> queueTail;
+	private final AtomicReferenceArray<OpDesc<E>> state;
+
+	private final AtomicInteger nextThreadId = new AtomicInteger(0);
+	private final ThreadLocal<Integer> threadId = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			int id = nextThreadId.getAndIncrement();
+
+			if (id >= state.length()) {
+				throw new IllegalStateException("KoganPetrankQueue supports at most " + state.length() + " threads");
+			}
+
+			return id;
+		}
+	};
+
+	/**
+	 * Creates an empty KoganPetrankQueue for at most <code>maxThreads</code>
+	 * threads.
+	 *
+	 * @param maxThreads
+	 *            the maximum number of distinct threads accessing the queue
+	 */
+	public KoganPetrankQueue(int maxThreads) {
+		// Create sentinel node
+		Node<E> n = new Node<>(null, NO_THREAD);
+		queueHead = new AtomicReference<>(n);
+		queueTail = new AtomicReference<>(n);
+
+		state = new AtomicReferenceArray<>(maxThreads);
+
+		for (int i = 0; i < maxThreads; i++) {
+			state.set(i, new OpDesc<E>(-1, false, true, null));
+		}
+
+		logger.trace("Created KPQueue with maxThreads = " + maxThreads);
+	}
+
+	/**
+	 * Announces an enqueue of a new node containing the provided data and helps
+	 * all pending operations up to its phase, including itself.
+	 *
+	 * @param data
+	 *            the data to be enqueued
+	 */
+	@Override
+	public void enqueue(E data) {
+		int tid = threadId.get();
+		long phase = maxPhase() + 1;
+
+		state.set(tid, new OpDesc<>(phase, true, true, new Node<>(data, tid)));
+		help(tid, phase);
+		helpFinishEnqueue(tid);
+
+		logger.trace("Successful enqueue: " + data);
+		counters.get()[ENQUEUES]++;
+		depth.increment();
+	}
+
+	/**
+	 * Announces a dequeue and helps all pending operations up to its phase,
+	 * including itself.
+	 *
+	 * @return the old head of the queue, or <code>null</code> if the queue was
+	 *         empty
+	 */
+	@Override
+	public E dequeue() {
+		int tid = threadId.get();
+		long phase = maxPhase() + 1;
+
+		state.set(tid, new OpDesc<E>(phase, true, false, null));
+		help(tid, phase);
+		helpFinishDequeue(tid);
+
+		Node<E> node = state.get(tid).node;
+
+		if (node == null) {
+			// Queue is empty
+			return null;
+		}
+
+		// The dequeued value is held by the successor of the old sentinel
+		E data = node.next.get().data;
+
+		logger.trace("Successful dequeue: " + data);
+		counters.get()[DEQUEUES]++;
+		depth.decrement();
+
+		return data;
+	}
+
+	/**
+	 * Helps every pending operation whose phase is not larger than the provided
+	 * phase. The helping thread is <code>myTid</code> here and in the methods
+	 * below.
+	 */
+	private void help(int myTid, long phase) {
+		for (int i = 0; i < state.length(); i++) {
+			OpDesc<E> desc = state.get(i);
+
+			if (desc.pending && desc.phase <= phase) {
+				if (desc.enqueue) {
+					helpEnqueue(i, phase, myTid);
+				} else {
+					helpDequeue(i, phase, myTid);
+				}
+			}
+		}
+	}
+
+	private long maxPhase() {
+		long max = -1;
+
+		for (int i = 0; i < state.length(); i++) {
+			max = Math.max(max, state.get(i).phase);
+		}
+
+		return max;
+	}
+
+	private boolean isStillPending(int tid, long phase) {
+		OpDesc<E> desc = state.get(tid);
+		return desc.pending && desc.phase <= phase;
+	}
+
+	/**
+	 * Counts a completion of the operation of thread <code>tid</code> by thread
+	 * <code>myTid</code> as helped if the two threads differ.
+	 */
+	private void completed(int tid, int myTid) {
+		if (tid != myTid) {
+			counters.get()[HELPED]++;
+		}
+	}
+
+	private void helpEnqueue(int tid, long phase, int myTid) {
+		while (isStillPending(tid, phase)) {
+			Node<E> last = queueTail.get();
+			Node<E> next = last.next.get();
+
+			if (last == queueTail.get()) {
+				if (next == null) {
+					if (isStillPending(tid, phase) && last.next.compareAndSet(null, state.get(tid).node)) {
+						helpFinishEnqueue(myTid);
+						return;
+					}
+				} else {
+					// An enqueue is in progress, finish it first
+					helpFinishEnqueue(myTid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the enqueue of the node after the tail as completed in its owner's
+	 * descriptor, and then advances the tail.
+	 */
+	private void helpFinishEnqueue(int myTid) {
+		Node<E> last = queueTail.get();
+		Node<E> next = last.next.get();
+
+		if (next != null) {
+			int tid = next.enqTid;
+			OpDesc<E> curDesc = state.get(tid);
+
+			if (last == queueTail.get() && curDesc.node == next) {
+				OpDesc<E> newDesc = new OpDesc<>(curDesc.phase, false, true, next);
+
+				if (state.compareAndSet(tid, curDesc, newDesc)) {
+					completed(tid, myTid);
+				}
+			}
+
+			queueTail.compareAndSet(last, next);
+		}
+	}
+
+	private void helpDequeue(int tid, long phase, int myTid) {
+		while (isStillPending(tid, phase)) {
+			Node<E> first = queueHead.get();
+			Node<E> last = queueTail.get();
+			Node<E> next = first.next.get();
+
+			if (first != queueHead.get()) {
+				continue;
+			}
+
+			if (first == last) {
+				if (next == null) {
+					// Queue is empty, complete the dequeue with an empty result
+					OpDesc<E> curDesc = state.get(tid);
+
+					if (last == queueTail.get() && isStillPending(tid, phase)) {
+						OpDesc<E> newDesc = new OpDesc<>(curDesc.phase, false, false, null);
+
+						if (state.compareAndSet(tid, curDesc, newDesc)) {
+							completed(tid, myTid);
+						}
+					}
+				} else {
+					// An enqueue is in progress, finish it first
+					helpFinishEnqueue(myTid);
+				}
+			} else {
+				OpDesc<E> curDesc = state.get(tid);
+				Node<E> node = curDesc.node;
+
+				if (!isStillPending(tid, phase)) {
+					break;
+				}
+
+				// Record the current sentinel as the node to be dequeued
+				if (first == queueHead.get() && node != first) {
+					OpDesc<E> newDesc = new OpDesc<>(curDesc.phase, true, false, first);
+
+					if (!state.compareAndSet(tid, curDesc, newDesc)) {
+						continue;
+					}
+				}
+
+				// Lock the sentinel for this dequeue
+				first.deqTid.compareAndSet(NO_THREAD, tid);
+				helpFinishDequeue(myTid);
+			}
+		}
+	}
+
+	/**
+	 * Marks the dequeue that locked the current sentinel as completed in its
+	 * owner's descriptor, and then advances the head.
+	 */
+	private void helpFinishDequeue(int myTid) {
+		Node<E> first = queueHead.get();
+		Node<E> next = first.next.get();
+		int tid = first.deqTid.get();
+
+		if (tid != NO_THREAD) {
+			OpDesc<E> curDesc = state.get(tid);
+
+			if (first == queueHead.get() && next != null) {
+				OpDesc<E> newDesc = new OpDesc<>(curDesc.phase, false, false, curDesc.node);
+
+				if (state.compareAndSet(tid, curDesc, newDesc)) {
+					completed(tid, myTid);
+				}
+
+				queueHead.compareAndSet(first, next);
+			}
+		}
+	}
+
+	/**
+	 * Returns the approximate number of elements, read from striped per-thread
+	 * counters.
+	 */
+	@Override
+	public int size() {
+		return depth.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return depth.isEmpty();
+	}
+
+	@Override
+	public Map<String, Long> getStats() {
+		long[] total = counters.sum();
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("enqueues", total[ENQUEUES]);
+		stats.put("dequeues", total[DEQUEUES]);
+		stats.put("helpedOperations", total[HELPED]);
+		return stats;
+	}
+
+	/**
+	 * Prints statistics about the queue to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		long[] total = counters.sum();
+
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Number of enqueues:    " + total[ENQUEUES]);
+		stream.println("Number of dequeues:    " + total[DEQUEUES]);
+		stream.println("Helped operations:     " + total[HELPED]);
+	}
+
+	private static class Node<E> {
+		final E data;
+		final AtomicReference<Node<E>> next;
+		final int enqTid;
+		final AtomicInteger deqTid;
+
+		Node(E data, int enqTid) {
+			this.data = data;
+			this.next = new AtomicReference<>(null);
+			this.enqTid = enqTid;
+			this.deqTid = new AtomicInteger(NO_THREAD);
+		}
+	}
+
+	/**
+	 * Operation descriptor. Descriptors are immutable and replaced with a CAS.
+	 */
+	private static class OpDesc<E> {
+		final long phase;
+		final boolean pending;
+		final boolean enqueue;
+		final Node<E> node;
+
+		OpDesc(long phase, boolean pending, boolean enqueue, Node<E> node) {
+			this.phase = phase;
+			this.pending = pending;
+			this.enqueue = enqueue;
+			this.node = node;
+		}
+	}
+}
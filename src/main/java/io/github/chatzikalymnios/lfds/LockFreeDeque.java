@@ -0,0 +1,40 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+
+public interface LockFreeDeque<E> {
+	/**
+	 * Pushes the provided data onto the bottom of the deque. Must only be called by
+	 * the owner thread of the deque.
+	 *
+	 * @param data
+	 *            the data to be pushed onto the bottom of the deque
+	 */
+	void pushBottom(E data);
+
+	/**
+	 * Pops the bottom of the deque. Must only be called by the owner thread of the
+	 * deque.
+	 *
+	 * @return the old bottom of the deque, or <code>null</code> if the deque was
+	 *         empty
+	 */
+	E popBottom();
+
+	/**
+	 * Atomically removes the top of the deque. May be called by any thread.
+	 *
+	 * @return the old top of the deque, or <code>null</code> if the deque was
+	 *         empty or a concurrent operation removed the same element
+	 */
+	E steal();
+
+	/**
+	 * Prints statistics relevant to each LockFreeDeque implementation to the
+	 * specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	void printStats(PrintStream stream);
+}
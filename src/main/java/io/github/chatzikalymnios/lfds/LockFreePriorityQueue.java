@@ -0,0 +1,32 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+
+public interface LockFreePriorityQueue<E> {
+	/**
+	 * Atomically inserts the provided data.
+	 *
+	 * @param data
+	 *            the data to be inserted
+	 */
+	void insert(E data);
+
+	/**
+	 * Atomically removes the minimum element of the priority queue. Relaxed
+	 * implementations may return an element close to, but not necessarily equal
+	 * to, the minimum.
+	 *
+	 * @return the removed element, or <code>null</code> if the priority queue was
+	 *         empty
+	 */
+	E deleteMin();
+
+	/**
+	 * Prints statistics relevant to each LockFreePriorityQueue implementation to
+	 * the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	void printStats(PrintStream stream);
+}
@@ -0,0 +1,44 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+
+public interface LockFreeSet<E> {
+	/**
+	 * Atomically adds the provided item to the set, if it is not already present.
+	 *
+	 * @param item
+	 *            the item to be added
+	 * @return <code>true</code> if the item was added; <code>false</code> if it
+	 *         was already present
+	 */
+	boolean add(E item);
+
+	/**
+	 * Atomically removes the provided item from the set, if it is present.
+	 *
+	 * @param item
+	 *            the item to be removed
+	 * @return <code>true</code> if the item was removed; <code>false</code> if it
+	 *         was not present
+	 */
+	boolean remove(E item);
+
+	/**
+	 * Returns whether the provided item is present in the set.
+	 *
+	 * @param item
+	 *            the item to look for
+	 * @return <code>true</code> if the item is present; <code>false</code>
+	 *         otherwise
+	 */
+	boolean contains(E item);
+
+	/**
+	 * Prints statistics relevant to each LockFreeSet implementation to the
+	 * specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	void printStats(PrintStream stream);
+}
@@ -1,6 +1,7 @@
 package io.github.chatzikalymnios.lfds;
 
 import java.io.PrintStream;
+import java.util.Map;
 
 public interface LockFreeStack<E> {
 	/**
@@ -18,6 +19,35 @@ public interface LockFreeStack<E> {
 	 */
 	E pop();
 
+	/**
+	 * Returns the approximate number of elements in the stack. The result is exact
+	 * when no operation is in progress, and is computed without traversing the
+	 * elements.
+	 *
+	 * @return the approximate number of elements
+	 */
+	int size();
+
+	/**
+	 * Returns whether the stack is approximately empty, i.e. whether
+	 * {@link #size()} is 0.
+	 *
+	 * @return <code>true</code> if the stack is approximately empty;
+	 *         <code>false</code> otherwise
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Returns a snapshot of the integer statistics of the stack, by name. The
+	 * names are stable identifiers, independent of the labels printed by
+	 * {@link #printStats(PrintStream)}, and every call returns the same names in
+	 * the same order. The method may be called while the stack is in use, in
+	 * which case the values are approximate.
+	 *
+	 * @return the statistics, by name
+	 */
+	Map<String, Long> getStats();
+
 	/**
 	 * Prints statistics relevant to each LockFreeStack implementation to the
 	 * specified stream.
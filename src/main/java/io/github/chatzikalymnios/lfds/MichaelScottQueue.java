@@ -1,6 +1,9 @@
 package io.github.chatzikalymnios.lfds;
 
 import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -19,19 +22,71 @@ import org.slf4j.LoggerFactory;
 public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 	private static final Logger logger = LoggerFactory.getLogger(MichaelScottQueue.class);
 
+	/*
+	 * Returned by tryDequeue() when a concurrent dequeue won the race.
+	 */
+	static final Object RETRY = new Object();
+
 	// Statistics
 	private final AtomicInteger numEnqueues = new AtomicInteger(0);
 	private final AtomicInteger numDequeues = new AtomicInteger(0);
+	private final boolean counted;
+
+	/*
+	 * Optional per-thread contention counters. Every thread registers its counters
+	 * the first time it reads them, so that they can be aggregated after the run.
+	 */
+	private final boolean instrumented;
+	private final ConcurrentLinkedQueue<ContentionStats> allThreadStats = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<ContentionStats> threadStats = new ThreadLocal<ContentionStats>() {
+		@Override
+		protected ContentionStats initialValue() {
+			ContentionStats stats = new ContentionStats(0);
+			allThreadStats.add(stats);
+			return stats;
+		}
+	};
 
-	private final AtomicReference<Node> queueHead;
-	private final AtomicReference<Node> queueTail;
+	private final AtomicReference<Node<E>> queueHead;
+	private final AtomicReference<Node<E>> queueTail;
 
 	/**
-	 * Creates an empty MichaelScottStack.
+	 * Creates an empty MichaelScottQueue without contention instrumentation.
 	 */
 	public MichaelScottQueue() {
+		this(false);
+	}
+
+	/**
+	 * Creates an empty MichaelScottQueue. If <code>instrumented</code> is set, each
+	 * thread counts its failed CAS operations and the times it had to help advance
+	 * a lagging tail, and the aggregated counts are included in the
+	 * {@link #printStats(PrintStream) statistics}.
+	 *
+	 * @param instrumented
+	 *            whether to collect contention statistics
+	 */
+	public MichaelScottQueue(boolean instrumented) {
+		this(instrumented, true);
+	}
+
+	/**
+	 * Creates an empty MichaelScottQueue as above. If <code>counted</code> is not
+	 * set, the queue does not count its enqueues and dequeues, which every thread
+	 * would otherwise increment on a shared counter, e.g. for the sub-queues of a
+	 * {@link MultiQueue}, which counts its operations itself.
+	 *
+	 * @param instrumented
+	 *            whether to collect contention statistics
+	 * @param counted
+	 *            whether to count the enqueues and dequeues
+	 */
+	MichaelScottQueue(boolean instrumented, boolean counted) {
+		this.instrumented = instrumented;
+		this.counted = counted;
+
 		// Create sentinel node
-		Node n = new Node();
+		Node<E> n = new Node<>();
 		queueHead = new AtomicReference<>(n);
 		queueTail = new AtomicReference<>(n);
 
@@ -46,9 +101,27 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 	 */
 	@Override
 	public void enqueue(E data) {
-		Node n = new Node(data);
-		Node tail = null;
-		Node next = null;
+		Node<E> n = new Node<>(data);
+
+		while (!tryEnqueue(n)) {
+		}
+	}
+
+	/**
+	 * Attempts to atomically append the provided node to the queue. A lagging tail
+	 * is helped forward and the attempt is repeated, so the method only fails if
+	 * the CAS that links the node was lost to a concurrent enqueue. Before that
+	 * CAS, the node is assigned the sequence number following the one of the
+	 * current tail.
+	 *
+	 * @param n
+	 *            the node to be enqueued
+	 * @return <code>true</code> if the node was enqueued; <code>false</code> if a
+	 *         concurrent enqueue won the race
+	 */
+	boolean tryEnqueue(Node<E> n) {
+		Node<E> tail = null;
+		Node<E> next = null;
 
 		while (true) {
 			tail = queueTail.get();
@@ -56,13 +129,25 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 
 			if (tail == queueTail.get()) {
 				if (next == null) {
+					n.seq = tail.seq + 1;
+
 					if (tail.next.compareAndSet(next, n)) {
 						break;
 					}
+
+					if (instrumented) {
+						threadStats.get().insertCasFailures++;
+					}
+
+					return false;
 				} else {
 					// Tail has fallen behind
 					// Try to advance it
 					queueTail.compareAndSet(tail, next);
+
+					if (instrumented) {
+						threadStats.get().helpingEvents++;
+					}
 				}
 			}
 		}
@@ -71,8 +156,17 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 		// If unsuccessful, the tail was advanced by a concurrent thread
 		queueTail.compareAndSet(tail, n);
 
-		logger.trace("Successful enqueue: " + data);
-		numEnqueues.incrementAndGet();
+		logger.trace("Successful enqueue: " + n.data);
+
+		if (counted) {
+			numEnqueues.incrementAndGet();
+		}
+
+		if (instrumented) {
+			threadStats.get().numInserts++;
+		}
+
+		return true;
 	}
 
 	/**
@@ -81,10 +175,29 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 	 * @return the old head of queue, or <code>null</code> if the queue was empty
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public E dequeue() {
-		Node head = null;
-		Node tail = null;
-		Node next = null;
+		Object data;
+
+		do {
+			data = tryDequeue();
+		} while (data == RETRY);
+
+		return (E) data;
+	}
+
+	/**
+	 * Attempts to atomically dequeue the head of the queue. A lagging tail is
+	 * helped forward and the attempt is repeated, so the method only fails if the
+	 * CAS that removes the head was lost to a concurrent dequeue.
+	 *
+	 * @return the old head of queue, <code>null</code> if the queue was empty, or
+	 *         {@link #RETRY} if a concurrent dequeue won the race
+	 */
+	Object tryDequeue() {
+		Node<E> head = null;
+		Node<E> tail = null;
+		Node<E> next = null;
 		E data = null;
 
 		while (true) {
@@ -102,22 +215,110 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 					// Tail has fallen behind
 					// Try to advance it
 					queueTail.compareAndSet(tail, next);
+
+					if (instrumented) {
+						threadStats.get().helpingEvents++;
+					}
 				} else {
 					data = next.data;
 
 					if (queueHead.compareAndSet(head, next)) {
 						break;
 					}
+
+					if (instrumented) {
+						threadStats.get().removeCasFailures++;
+					}
+
+					return RETRY;
 				}
 			}
 		}
 
 		logger.trace("Successful dequeue: " + data);
-		numDequeues.incrementAndGet();
+
+		if (counted) {
+			numDequeues.incrementAndGet();
+		}
+
+		if (instrumented) {
+			threadStats.get().numRemoves++;
+		}
 
 		return data;
 	}
 
+	/**
+	 * Returns the sequence number of the current head (sentinel) node. Every item
+	 * with a sequence number up to and including this one has been dequeued.
+	 *
+	 * @return the sequence number of the head node
+	 */
+	long headSeq() {
+		return queueHead.get().seq;
+	}
+
+	/**
+	 * Returns the head of the queue without dequeuing it.
+	 *
+	 * @return the head of queue, or <code>null</code> if the queue was empty
+	 */
+	E peek() {
+		Node<E> next = queueHead.get().next.get();
+		return (next == null) ? null : next.data;
+	}
+
+	/**
+	 * Returns an estimate of the number of items in the queue, derived from the
+	 * sequence numbers of the head and tail nodes. The estimate may be off by the
+	 * operations in progress.
+	 *
+	 * @return the approximate number of items in the queue
+	 */
+	long approximateSize() {
+		return Math.max(0, queueTail.get().seq - queueHead.get().seq);
+	}
+
+	/**
+	 * Returns the approximate number of elements, derived from the sequence
+	 * numbers of the head and tail nodes without any extra bookkeeping.
+	 *
+	 * @see #approximateSize()
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(approximateSize(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns whether the queue is empty, i.e. whether the sentinel node has no
+	 * successor.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return queueHead.get().next.get() == null;
+	}
+
+	/**
+	 * Returns the operation counters and, if instrumented, the contention
+	 * counters.
+	 */
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("enqueues", (long) numEnqueues.get());
+		stats.put("dequeues", (long) numDequeues.get());
+
+		if (instrumented) {
+			ContentionStats total = ContentionStats.aggregate(allThreadStats, 0);
+			stats.put("enqueueCasFailures", total.insertCasFailures);
+			stats.put("dequeueCasFailures", total.removeCasFailures);
+			stats.put("tailHelpingEvents", total.helpingEvents);
+		}
+
+		return stats;
+	}
+
 	/**
 	 * Prints statistics about the Michael-Scott queue to the specified stream.
 	 *
@@ -129,11 +330,26 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 		stream.println(getClass().getSimpleName() + " stats:");
 		stream.println("Number of enqueues:    " + numEnqueues.get());
 		stream.println("Number of dequeues:    " + numDequeues.get());
+
+		if (instrumented) {
+			ContentionStats total = ContentionStats.aggregate(allThreadStats, 0);
+			stream.println(String.format("Enqueue CAS failures:  %d (%.3f per enqueue)", total.insertCasFailures,
+					ContentionStats.perOp(total.insertCasFailures, total.numInserts)));
+			stream.println(String.format("Dequeue CAS failures:  %d (%.3f per dequeue)", total.removeCasFailures,
+					ContentionStats.perOp(total.removeCasFailures, total.numRemoves)));
+			stream.println(String.format("Tail helping events:   %d (%.3f per operation)", total.helpingEvents,
+					ContentionStats.perOp(total.helpingEvents, total.numInserts + total.numRemoves)));
+		}
 	}
 
-	private class Node {
+	/*
+	 * Queue nodes are numbered in enqueue order, starting from the initial
+	 * sentinel node with sequence number 0.
+	 */
+	static class Node<E> {
 		E data;
-		AtomicReference<Node> next;
+		long seq;
+		AtomicReference<Node<E>> next;
 
 		Node() {
 			this(null);
@@ -141,6 +357,7 @@ public class MichaelScottQueue<E> implements LockFreeQueue<E> {
 
 		Node(E data) {
 			this.data = data;
+			this.seq = 0;
 			this.next = new AtomicReference<>();
 		}
 	}
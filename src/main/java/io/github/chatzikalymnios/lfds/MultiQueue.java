@@ -0,0 +1,212 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of a relaxed FIFO multi-queue.
+ *
+ * Items are spread over several {@link MichaelScottQueue} sub-queues, so that
+ * concurrent operations rarely contend on the same head or tail. An enqueue
+ * samples two random sub-queues and appends a timestamped item to the one that
+ * holds fewer items. A dequeue samples two random sub-queues and removes the
+ * head with the older timestamp. The more sub-queues there are, the better the
+ * operations scale, but the further the dequeue order may deviate from the
+ * enqueue order.
+ *
+ * If the sampled sub-queues are empty, a dequeue scans every sub-queue, and it
+ * only reports the queue as empty if it found all of them empty.
+ *
+ * The statistics are kept in {@link ThreadCounters}, and the sub-queues do not
+ * count their operations, so that the statistics add no shared writes to the
+ * operations.
+ *
+ * @see <a href="https://doi.org/10.1145/2755573.2755616" target="_blank">Hamza
+ *      Rihani, Peter Sanders, and Roman Dementiev. 2015. MultiQueues: Simple
+ *      Relaxed Concurrent Priority Queues. In Proceedings of the 27th ACM
+ *      symposium on Parallelism in Algorithms and Architectures (SPAA '15). ACM,
+ *      New York, NY, USA, 80-82.</a>
+ */
+public class MultiQueue<E> implements LockFreeQueue<E> {
+	private static final Logger logger = LoggerFactory.getLogger(MultiQueue.class);
+
+	private static final int MAX_SAMPLES = 2; // two-choice attempts before scanning
+
+	// Indices of the per-thread statistics counters
+	private static final int ENQUEUES = 0;
+	private static final int DEQUEUES = 1;
+	private static final int LOST_RACES = 2;
+	private static final int SCANS = 3;
+	private static final int NUM_COUNTERS = 4;
+
+	// Statistics
+	private final ThreadCounters counters = new ThreadCounters(NUM_COUNTERS);
+
+	private final List<MichaelScottQueue<Entry<E>>> queues;
+
+	/**
+	 * Creates an empty MultiQueue with the specified number of sub-queues, which
+	 * acts as the relaxation factor. A single sub-queue results in a strict FIFO
+	 * queue.
+	 *
+	 * @param numQueues
+	 *            the number of sub-queues
+	 */
+	public MultiQueue(int numQueues) {
+		this.queues = new ArrayList<>(numQueues);
+
+		for (int i = 0; i < numQueues; i++) {
+			queues.add(new MichaelScottQueue<Entry<E>>(false, false));
+		}
+
+		logger.trace("Created MultiQueue with numQueues = " + numQueues);
+	}
+
+	/**
+	 * Enqueues the provided data in the less loaded of two random sub-queues.
+	 *
+	 * @param data
+	 *            the data to be enqueued
+	 */
+	@Override
+	public void enqueue(E data) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		MichaelScottQueue<Entry<E>> a = queues.get(random.nextInt(queues.size()));
+		MichaelScottQueue<Entry<E>> b = queues.get(random.nextInt(queues.size()));
+		MichaelScottQueue<Entry<E>> queue = (a.approximateSize() <= b.approximateSize()) ? a : b;
+
+		queue.enqueue(new Entry<>(data, System.nanoTime()));
+
+		logger.trace("Successful enqueue: " + data);
+		counters.get()[ENQUEUES]++;
+	}
+
+	/**
+	 * Dequeues the older of the heads of two random sub-queues, falling back to a
+	 * scan of all sub-queues if the sampled ones are empty.
+	 *
+	 * @return the dequeued data, or <code>null</code> if every sub-queue was empty
+	 */
+	@Override
+	public E dequeue() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long[] myCounters = counters.get();
+
+		for (int i = 0; i < MAX_SAMPLES; i++) {
+			MichaelScottQueue<Entry<E>> a = queues.get(random.nextInt(queues.size()));
+			MichaelScottQueue<Entry<E>> b = queues.get(random.nextInt(queues.size()));
+			Entry<E> headA = a.peek();
+			Entry<E> headB = b.peek();
+
+			if (headA == null && headB == null) {
+				continue;
+			}
+
+			MichaelScottQueue<Entry<E>> queue = (headB == null || (headA != null && headA.stamp <= headB.stamp)) ? a
+					: b;
+			Entry<E> entry = queue.dequeue();
+
+			if (entry != null) {
+				return dequeued(entry, myCounters);
+			}
+
+			// The sub-queue was drained concurrently
+			myCounters[LOST_RACES]++;
+		}
+
+		myCounters[SCANS]++;
+		int start = random.nextInt(queues.size());
+
+		for (int i = 0; i < queues.size(); i++) {
+			Entry<E> entry = queues.get((start + i) % queues.size()).dequeue();
+
+			if (entry != null) {
+				return dequeued(entry, myCounters);
+			}
+		}
+
+		// Every sub-queue is empty
+		return null;
+	}
+
+	private E dequeued(Entry<E> entry, long[] myCounters) {
+		logger.trace("Successful dequeue: " + entry.data);
+		myCounters[DEQUEUES]++;
+		return entry.data;
+	}
+
+	/**
+	 * Returns the approximate number of elements, summed over the sub-queues.
+	 */
+	@Override
+	public int size() {
+		long size = 0;
+
+		for (MichaelScottQueue<Entry<E>> queue : queues) {
+			size += queue.approximateSize();
+		}
+
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns whether every sub-queue is empty.
+	 */
+	@Override
+	public boolean isEmpty() {
+		for (MichaelScottQueue<Entry<E>> queue : queues) {
+			if (!queue.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public Map<String, Long> getStats() {
+		long[] total = counters.sum();
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("subQueues", (long) queues.size());
+		stats.put("enqueues", total[ENQUEUES]);
+		stats.put("dequeues", total[DEQUEUES]);
+		stats.put("lostDequeueRaces", total[LOST_RACES]);
+		stats.put("dequeueScans", total[SCANS]);
+		return stats;
+	}
+
+	/**
+	 * Prints statistics about the multi-queue to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		long[] total = counters.sum();
+
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Number of sub-queues:  " + queues.size());
+		stream.println("Number of enqueues:    " + total[ENQUEUES]);
+		stream.println("Number of dequeues:    " + total[DEQUEUES]);
+		stream.println("Lost dequeue races:    " + total[LOST_RACES]);
+		stream.println("Dequeue scans:         " + total[SCANS]);
+	}
+
+	private static class Entry<E> {
+		final E data;
+		final long stamp;
+
+		Entry(E data, long stamp) {
+			this.data = data;
+			this.stamp = stamp;
+		}
+	}
+}
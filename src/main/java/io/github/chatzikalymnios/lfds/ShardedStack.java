@@ -0,0 +1,232 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of a relaxed (sharded) stack with work stealing.
+ *
+ * The stack consists of several lock-free Treiber stacks, the shards. Each
+ * thread is assigned a home shard the first time it accesses the stack, and it
+ * pushes to and pops from that shard. Only when its home shard is empty does a
+ * pop steal the top of another shard, probing the other shards starting from a
+ * random one. As long as threads mostly find items in their home shard, they
+ * do not contend with each other, at the cost of a global LIFO order: a pop
+ * returns the most recently pushed item of one shard. The statistics are kept
+ * in {@link ThreadCounters}, so a thread that stays on its home shard writes to
+ * no memory shared with other threads besides that shard.
+ */
+public class ShardedStack<E> implements LockFreeStack<E>, DepthCounted {
+	private static final Logger logger = LoggerFactory.getLogger(ShardedStack.class);
+
+	// Indices of the per-thread statistics counters
+	private static final int PUSHES = 0;
+	private static final int POPS = 1;
+	private static final int CAS_FAILURES = 2;
+	private static final int STEAL_ATTEMPTS = 3;
+	private static final int STEALS = 4;
+	private static final int NUM_COUNTERS = 5;
+
+	/*
+	 * Atomic integer containing the next id to be assigned by the current
+	 * ShardedStack instance.
+	 */
+	private final AtomicInteger nextId = new AtomicInteger(0);
+
+	/*
+	 * Each thread is assigned a home shard, round-robin, the moment it first
+	 * accesses the stack.
+	 */
+	private final ThreadLocal<Integer> homeShard = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			return nextId.getAndIncrement() % shards.size();
+		}
+	};
+
+	// Statistics
+	private final ThreadCounters counters = new ThreadCounters(NUM_COUNTERS);
+
+	/*
+	 * Approximate number of elements, updated after every successful operation.
+	 */
+	private final DepthCounter depth = new DepthCounter();
+
+	private final List<AtomicReference<Node<E>>> shards;
+
+	/**
+	 * Creates an empty ShardedStack with the specified number of shards. Using one
+	 * shard per updating thread gives every thread a shard of its own.
+	 *
+	 * @param numShards
+	 *            the number of shards
+	 */
+	public ShardedStack(int numShards) {
+		this.shards = new ArrayList<>(numShards);
+
+		for (int i = 0; i < numShards; i++) {
+			shards.add(new AtomicReference<Node<E>>(null));
+		}
+
+		logger.trace("Created ShardedStack with numShards = " + numShards);
+	}
+
+	/**
+	 * Pushes the provided data onto the calling thread's home shard.
+	 *
+	 * @param data
+	 *            the data to be pushed onto the stack
+	 */
+	@Override
+	public void push(E data) {
+		long[] myCounters = counters.get();
+		AtomicReference<Node<E>> shard = shards.get(homeShard.get());
+		Node<E> node = new Node<>(data);
+
+		while (true) {
+			Node<E> top = shard.get();
+			node.next = top;
+
+			if (shard.compareAndSet(top, node)) {
+				break;
+			}
+
+			myCounters[CAS_FAILURES]++;
+		}
+
+		logger.trace("Successful push: " + data);
+		myCounters[PUSHES]++;
+		depth.increment();
+	}
+
+	/**
+	 * Pops the top of the calling thread's home shard, or steals the top of
+	 * another shard if the home shard is empty.
+	 *
+	 * @return the popped data, or <code>null</code> if every shard was empty
+	 */
+	@Override
+	public E pop() {
+		long[] myCounters = counters.get();
+		int home = homeShard.get();
+		Node<E> node = tryPop(shards.get(home), myCounters);
+
+		if (node == null && shards.size() > 1) {
+			myCounters[STEAL_ATTEMPTS]++;
+
+			int start = ThreadLocalRandom.current().nextInt(shards.size());
+
+			for (int i = 0; i < shards.size() && node == null; i++) {
+				int victim = (start + i) % shards.size();
+
+				if (victim != home) {
+					node = tryPop(shards.get(victim), myCounters);
+				}
+			}
+
+			if (node != null) {
+				myCounters[STEALS]++;
+			}
+		}
+
+		if (node == null) {
+			// Every shard is empty
+			return null;
+		}
+
+		logger.trace("Successful pop: " + node.data);
+		myCounters[POPS]++;
+		depth.decrement();
+
+		return node.data;
+	}
+
+	/**
+	 * Pops the top node of the provided shard, retrying until the shard is
+	 * found empty, and counts the failed CAS operations in the calling thread's
+	 * counters.
+	 *
+	 * @return the popped node, or <code>null</code> if the shard was empty
+	 */
+	private Node<E> tryPop(AtomicReference<Node<E>> shard, long[] myCounters) {
+		while (true) {
+			Node<E> top = shard.get();
+
+			if (top == null) {
+				return null;
+			}
+
+			if (shard.compareAndSet(top, top.next)) {
+				return top;
+			}
+
+			myCounters[CAS_FAILURES]++;
+		}
+	}
+
+	/**
+	 * Returns the approximate number of elements, read from striped per-thread
+	 * counters.
+	 */
+	@Override
+	public int size() {
+		return depth.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return depth.isEmpty();
+	}
+
+	@Override
+	public Map<String, Long> getStats() {
+		long[] total = counters.sum();
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("shards", (long) shards.size());
+		stats.put("pushes", total[PUSHES]);
+		stats.put("pops", total[POPS]);
+		stats.put("casFailures", total[CAS_FAILURES]);
+		stats.put("stealAttempts", total[STEAL_ATTEMPTS]);
+		stats.put("steals", total[STEALS]);
+		return stats;
+	}
+
+	/**
+	 * Prints statistics about the sharded stack to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		long[] total = counters.sum();
+
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Number of shards:      " + shards.size());
+		stream.println("Number of pushes:      " + total[PUSHES]);
+		stream.println("Number of pops:        " + total[POPS]);
+		stream.println("CAS failures:          " + total[CAS_FAILURES]);
+		stream.println("Steal attempts:        " + total[STEAL_ATTEMPTS]);
+		stream.println("Successful steals:     " + total[STEALS]);
+		stream.println(String.format("Cross-shard ratio:     %.4f",
+				ContentionStats.perOp(total[STEALS], total[POPS])));
+	}
+
+	private static class Node<E> {
+		final E data;
+		Node<E> next;
+
+		Node(E data) {
+			this.data = data;
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of a lock-free skiplist-based priority queue.
+ *
+ * Elements are kept sorted in a lock-free skiplist, whose links carry a mark
+ * bit denoting that their source node is being removed. A deleteMin first
+ * claims a node by setting its logical deletion flag and then unlinks it from
+ * the skiplist. Equal elements are ordered by a random tie-breaker, so
+ * duplicates are allowed.
+ *
+ * In strict mode, deleteMin claims the first unclaimed node of the bottom
+ * level. In relaxed mode, deleteMin performs a SprayList random walk that
+ * starts on level log p + 1, moves up to log^3 p nodes forward on a level and
+ * descends log log p levels at a time, so that it lands on one of the first
+ * O(p log^3 p) elements, which spreads concurrent deleteMin operations over
+ * different nodes at the cost of not always returning the minimum.
+ *
+ * @see <a href="https://doi.org/10.1109/IPDPS.2000.845994" target=
+ *      "_blank">Itay Lotan and Nir Shavit. 2000. Skiplist-based concurrent
+ *      priority queues. In Proceedings of the 14th International Parallel and
+ *      Distributed Processing Symposium (IPDPS 2000). IEEE, 263-268.</a>
+ * @see <a href="https://doi.org/10.1145/2688500.2688523" target="_blank">Dan
+ *      Alistarh, Justin Kopinsky, Jerry Li, and Nir Shavit. 2015. The SprayList:
+ *      a scalable relaxed priority queue. In Proceedings of the 20th ACM SIGPLAN
+ *      Symposium on Principles and Practice of Parallel Programming (PPoPP
+ *      2015). ACM, New York, NY, USA, 11-20.</a>
+ */
+public class SkipListPriorityQueue<E extends Comparable<? super E>> implements LockFreePriorityQueue<E> {
+	private static final Logger logger = LoggerFactory.getLogger(SkipListPriorityQueue.class);
+
+	private static final int MAX_LEVEL = 24;
+
+	// Statistics
+	private final AtomicInteger numInserts = new AtomicInteger(0);
+	private final AtomicInteger numDeleteMins = new AtomicInteger(0);
+	private final AtomicInteger numSprayFallbacks = new AtomicInteger(0);
+
+	private final Node<E> head;
+	private final Node<E> tail;
+
+	/*
+	 * Spray parameters, unused in strict mode.
+	 */
+	private final boolean relaxed;
+	private final int concurrencyLevel;
+	private final int sprayHeight;
+	private final int sprayJump;
+	private final int sprayDescent;
+
+	/**
+	 * Creates an empty SkipListPriorityQueue with a strict deleteMin.
+	 */
+	public SkipListPriorityQueue() {
+		this(1);
+	}
+
+	/**
+	 * Creates an empty SkipListPriorityQueue with a relaxed (SprayList) deleteMin,
+	 * tuned for the specified <code>concurrencyLevel</code>. The expected rank of
+	 * the removed elements grows with the <code>concurrencyLevel</code>. A
+	 * <code>concurrencyLevel</code> of 1 results in a strict deleteMin.
+	 *
+	 * @param concurrencyLevel
+	 *            the number of concurrently updating threads
+	 */
+	public SkipListPriorityQueue(int concurrencyLevel) {
+		int logP = 32 - Integer.numberOfLeadingZeros(Math.max(1, concurrencyLevel) - 1);
+
+		this.relaxed = concurrencyLevel > 1;
+		this.concurrencyLevel = concurrencyLevel;
+		this.sprayHeight = Math.min(logP + 1, MAX_LEVEL - 1);
+		this.sprayJump = Math.max(1, logP * logP * logP);
+		this.sprayDescent = Math.max(1, 31 - Integer.numberOfLeadingZeros(Math.max(1, logP)));
+
+		this.head = new Node<>(null, 0, MAX_LEVEL - 1);
+		this.tail = new Node<>(null, 0, MAX_LEVEL - 1);
+
+		for (int level = 0; level < MAX_LEVEL; level++) {
+			head.next[level].set(tail, false);
+		}
+
+		logger.trace("Created SLPQueue with concurrencyLevel = " + concurrencyLevel);
+	}
+
+	/**
+	 * Inserts a new node containing the provided data into the skiplist.
+	 *
+	 * @param data
+	 *            the data to be inserted
+	 */
+	@Override
+	public void insert(E data) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int topLevel = Integer.numberOfTrailingZeros(random.nextInt() | (1 << (MAX_LEVEL - 1)));
+		Node<E> node = new Node<>(data, random.nextLong(), topLevel);
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] preds = new Node[MAX_LEVEL];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] succs = new Node[MAX_LEVEL];
+
+		while (true) {
+			if (find(node, preds, succs)) {
+				// Tie-breaker collision, pick another one
+				node.tieBreaker = random.nextLong();
+				continue;
+			}
+
+			for (int level = 0; level <= topLevel; level++) {
+				node.next[level].set(succs[level], false);
+			}
+
+			// Linking the bottom level inserts the node
+			if (preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				break;
+			}
+		}
+
+		for (int level = 1; level <= topLevel; level++) {
+			while (true) {
+				Node<E> succ = succs[level];
+				Node<E> oldSucc = node.next[level].getReference();
+
+				// Stop linking if the node is already being removed
+				if (node.next[level].isMarked()
+						|| (oldSucc != succ && !node.next[level].compareAndSet(oldSucc, succ, false, false))) {
+					break;
+				}
+
+				if (preds[level].next[level].compareAndSet(succ, node, false, false)) {
+					break;
+				}
+
+				find(node, preds, succs);
+			}
+		}
+
+		logger.trace("Successful insert: " + data);
+		numInserts.incrementAndGet();
+	}
+
+	/**
+	 * Removes the minimum element, or an element close to the minimum in relaxed
+	 * mode.
+	 *
+	 * @return the removed element, or <code>null</code> if the priority queue was
+	 *         empty
+	 */
+	@Override
+	public E deleteMin() {
+		Node<E> node = null;
+
+		// Every concurrencyLevel-th deleteMin (on average) is strict, so that the
+		// elements skipped by the sprays do not accumulate at the front
+		boolean sprayed = relaxed && ThreadLocalRandom.current().nextInt(concurrencyLevel) != 0;
+
+		if (sprayed) {
+			node = spray();
+		}
+
+		if (node == null) {
+			node = claimFrom(head.next[0].getReference(), Integer.MAX_VALUE);
+
+			// A failed spray only counts if there was a node left to claim
+			if (sprayed && node != null) {
+				numSprayFallbacks.incrementAndGet();
+			}
+		}
+
+		if (node == null) {
+			// Priority queue is empty
+			return null;
+		}
+
+		remove(node);
+
+		logger.trace("Successful deleteMin: " + node.data);
+		numDeleteMins.incrementAndGet();
+
+		return node.data;
+	}
+
+	/**
+	 * Claims the first unclaimed node at the bottom level, starting at
+	 * <code>start</code> and visiting at most <code>maxSteps</code> nodes.
+	 *
+	 * @return the claimed node, or <code>null</code> if no node could be claimed
+	 */
+	private Node<E> claimFrom(Node<E> start, int maxSteps) {
+		Node<E> curr = start;
+
+		for (int steps = 0; curr != tail && steps < maxSteps; steps++) {
+			if (!curr.claimed.get() && curr.claimed.compareAndSet(false, true)) {
+				return curr;
+			}
+
+			curr = curr.next[0].getReference();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Performs a SprayList random walk: starting at the head on level
+	 * <code>sprayHeight</code>, it moves a random number of up to
+	 * <code>sprayJump</code> nodes forward on a level before descending
+	 * <code>sprayDescent</code> levels, down to the bottom level, and claims the
+	 * first unclaimed node within <code>sprayJump</code> nodes of the node it
+	 * lands on.
+	 *
+	 * @return the claimed node, or <code>null</code> if the walk failed
+	 */
+	private Node<E> spray() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Node<E> curr = head;
+
+		int level = sprayHeight;
+
+		while (true) {
+			int jump = random.nextInt(sprayJump + 1);
+
+			for (int i = 0; i < jump; i++) {
+				Node<E> next = curr.next[level].getReference();
+
+				if (next == tail) {
+					break;
+				}
+
+				curr = next;
+			}
+
+			if (level == 0) {
+				break;
+			}
+
+			level = Math.max(level - sprayDescent, 0);
+		}
+
+		if (curr == head) {
+			curr = head.next[0].getReference();
+		}
+
+		return claimFrom(curr, sprayJump);
+	}
+
+	/**
+	 * Marks every level of the provided (claimed) node, top-down, and then unlinks
+	 * it from the skiplist.
+	 *
+	 * @param node
+	 *            the node to be removed
+	 */
+	private void remove(Node<E> node) {
+		for (int level = node.topLevel; level >= 0; level--) {
+			boolean[] marked = { false };
+			Node<E> succ = node.next[level].get(marked);
+
+			while (!marked[0]) {
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] preds = new Node[MAX_LEVEL];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] succs = new Node[MAX_LEVEL];
+
+		find(node, preds, succs);
+	}
+
+	/**
+	 * Finds the predecessors and successors of the provided node's key on every
+	 * level, physically removing marked nodes on the way.
+	 *
+	 * @return <code>true</code> if a node with the same key is in the skiplist;
+	 *         <code>false</code> otherwise
+	 */
+	private boolean find(Node<E> target, Node<E>[] preds, Node<E>[] succs) {
+		boolean[] marked = { false };
+
+		retry: while (true) {
+			Node<E> pred = head;
+
+			for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+				Node<E> curr = pred.next[level].getReference();
+
+				while (true) {
+					Node<E> succ = curr.next[level].get(marked);
+
+					while (marked[0]) {
+						// Snip out the node that is being removed
+						if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+							continue retry;
+						}
+
+						curr = succ;
+						succ = curr.next[level].get(marked);
+					}
+
+					if (less(curr, target)) {
+						pred = curr;
+						curr = succ;
+					} else {
+						break;
+					}
+				}
+
+				preds[level] = pred;
+				succs[level] = curr;
+			}
+
+			return succs[0] != tail && !less(target, succs[0]);
+		}
+	}
+
+	/**
+	 * Returns whether the key of node <code>a</code> is smaller than the key of
+	 * node <code>b</code>, treating the head and tail as negative and positive
+	 * infinity.
+	 */
+	private boolean less(Node<E> a, Node<E> b) {
+		if (a == tail || b == head) {
+			return false;
+		}
+
+		if (a == head || b == tail) {
+			return true;
+		}
+
+		int cmp = a.data.compareTo(b.data);
+		return (cmp < 0) || (cmp == 0 && a.tieBreaker < b.tieBreaker);
+	}
+
+	/**
+	 * Prints statistics about the priority queue to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Mode:                  " + (relaxed ? "relaxed (spray height " + sprayHeight + ", jump "
+				+ sprayJump + ", descent " + sprayDescent + ")" : "strict"));
+		stream.println("Number of inserts:     " + numInserts.get());
+		stream.println("Number of deleteMins:  " + numDeleteMins.get());
+
+		if (relaxed) {
+			stream.println("Spray fallbacks:       " + numSprayFallbacks.get());
+		}
+	}
+
+	private static class Node<E> {
+		final E data;
+		long tieBreaker;
+		final int topLevel;
+		final AtomicMarkableReference<Node<E>>[] next;
+		final AtomicBoolean claimed;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node(E data, long tieBreaker, int topLevel) {
+			this.data = data;
+			this.tieBreaker = tieBreaker;
+			this.topLevel = topLevel;
+			this.next = new AtomicMarkableReference[topLevel + 1];
+			this.claimed = new AtomicBoolean(false);
+
+			for (int level = 0; level <= topLevel; level++) {
+				next[level] = new AtomicMarkableReference<Node<E>>(null, false);
+			}
+		}
+	}
+}
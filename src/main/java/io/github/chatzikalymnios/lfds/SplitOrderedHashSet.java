@@ -0,0 +1,192 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.chatzikalymnios.lfds.HarrisMichaelList.Node;
+
+/**
+ * An implementation of the lock-free resizable Split-Ordered hash set.
+ *
+ * All items are kept in a single {@link HarrisMichaelList}, sorted by the
+ * bit-reversed hash code of the item (the split order). Every bucket is a
+ * pointer to a sentinel node in the list, which is inserted lazily the first
+ * time the bucket is accessed. Doubling the number of buckets therefore never
+ * moves any items: a new bucket's sentinel node simply splits the items of its
+ * parent bucket in two. Null items are not supported.
+ *
+ * @see <a href="https://doi.org/10.1145/1147954.1147958" target="_blank">Ori
+ *      Shalev and Nir Shavit. 2006. Split-ordered lists: Lock-free extensible
+ *      hash tables. Journal of the ACM 53, 3 (May 2006), 379-405.</a>
+ */
+public class SplitOrderedHashSet<E> implements LockFreeSet<E> {
+	private static final Logger logger = LoggerFactory.getLogger(SplitOrderedHashSet.class);
+
+	private static final int LOAD_FACTOR = 2; // average items per bucket
+	private static final int SEGMENT_BITS = 10;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	private static final int MAX_BUCKETS = 1 << 24;
+
+	// Statistics
+	private final AtomicInteger numResizes = new AtomicInteger(0);
+	private final AtomicInteger numInitializedBuckets = new AtomicInteger(1);
+
+	private final HarrisMichaelList<E> list = new HarrisMichaelList<>();
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final AtomicInteger numBuckets;
+
+	/*
+	 * Two-level bucket table, so that only the segments of buckets in use are
+	 * allocated. Each entry points to the sentinel node of a bucket.
+	 */
+	private final AtomicReferenceArray<AtomicReferenceArray<Node<E>>> segments;
+
+	/**
+	 * Creates an empty SplitOrderedHashSet with two buckets.
+	 */
+	public SplitOrderedHashSet() {
+		this(2);
+	}
+
+	/**
+	 * Creates an empty SplitOrderedHashSet with the specified initial number of
+	 * buckets, rounded up to the next power of two.
+	 *
+	 * @param initialBuckets
+	 *            the initial number of buckets
+	 */
+	public SplitOrderedHashSet(int initialBuckets) {
+		int buckets = Integer.highestOneBit(Math.max(1, Math.min(initialBuckets, MAX_BUCKETS) - 1)) << 1;
+
+		this.numBuckets = new AtomicInteger(buckets);
+		this.segments = new AtomicReferenceArray<>(MAX_BUCKETS / SEGMENT_SIZE);
+
+		// Bucket 0 starts at the head of the list
+		bucketSegment(0).set(0, list.head());
+
+		logger.trace("Created SOHashSet with buckets = " + buckets);
+	}
+
+	@Override
+	public boolean add(E item) {
+		int h = HarrisMichaelList.hash(item);
+		Node<E> bucket = getBucket(h & (numBuckets.get() - 1));
+
+		if (list.add(bucket, new Node<>(regularKey(h), item)) != null) {
+			return false;
+		}
+
+		int buckets = numBuckets.get();
+
+		if (size.incrementAndGet() / buckets > LOAD_FACTOR && buckets < MAX_BUCKETS) {
+			if (numBuckets.compareAndSet(buckets, 2 * buckets)) {
+				numResizes.incrementAndGet();
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean remove(E item) {
+		int h = HarrisMichaelList.hash(item);
+		Node<E> bucket = getBucket(h & (numBuckets.get() - 1));
+
+		if (!list.remove(bucket, regularKey(h), item)) {
+			return false;
+		}
+
+		size.decrementAndGet();
+		return true;
+	}
+
+	@Override
+	public boolean contains(E item) {
+		int h = HarrisMichaelList.hash(item);
+		Node<E> bucket = getBucket(h & (numBuckets.get() - 1));
+		return list.contains(bucket, regularKey(h), item);
+	}
+
+	/**
+	 * Returns the sentinel node of the provided bucket, initializing the bucket
+	 * first if necessary.
+	 */
+	private Node<E> getBucket(int bucket) {
+		Node<E> sentinel = bucketSegment(bucket).get(bucket & (SEGMENT_SIZE - 1));
+		return (sentinel != null) ? sentinel : initializeBucket(bucket);
+	}
+
+	/**
+	 * Inserts the sentinel node of the provided bucket, starting from the sentinel
+	 * node of its parent bucket (the bucket without the most significant bit),
+	 * which is recursively initialized if necessary.
+	 */
+	private Node<E> initializeBucket(int bucket) {
+		int parent = bucket & ~Integer.highestOneBit(bucket);
+		Node<E> sentinel = new Node<>(sentinelKey(bucket), null);
+		Node<E> existing = list.add(getBucket(parent), sentinel);
+
+		if (existing != null) {
+			// A concurrent thread inserted the sentinel node first
+			sentinel = existing;
+		} else {
+			numInitializedBuckets.incrementAndGet();
+		}
+
+		bucketSegment(bucket).set(bucket & (SEGMENT_SIZE - 1), sentinel);
+		return sentinel;
+	}
+
+	/**
+	 * Returns the table segment holding the provided bucket, allocating it first
+	 * if necessary.
+	 */
+	private AtomicReferenceArray<Node<E>> bucketSegment(int bucket) {
+		int index = bucket >>> SEGMENT_BITS;
+		AtomicReferenceArray<Node<E>> segment = segments.get(index);
+
+		if (segment == null) {
+			segments.compareAndSet(index, null, new AtomicReferenceArray<Node<E>>(SEGMENT_SIZE));
+			segment = segments.get(index);
+		}
+
+		return segment;
+	}
+
+	/**
+	 * Split-order key of an item: the bit-reversed hash with the least significant
+	 * bit set, which places every item after the sentinel node of its bucket.
+	 */
+	private static int regularKey(int h) {
+		return Integer.reverse(h | 0x80000000);
+	}
+
+	/**
+	 * Split-order key of a bucket's sentinel node: the bit-reversed bucket number,
+	 * whose least significant bit is always clear.
+	 */
+	private static int sentinelKey(int bucket) {
+		return Integer.reverse(bucket);
+	}
+
+	/**
+	 * Prints statistics about the hash set to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Size:                  " + size.get());
+		stream.println("Buckets:               " + numBuckets.get());
+		stream.println("Initialized buckets:   " + numInitializedBuckets.get());
+		stream.println("Resizes:               " + numResizes.get());
+		stream.println();
+		list.printStats(stream);
+	}
+}
@@ -0,0 +1,59 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Statistics counters of a data structure, kept separately by every thread.
+ * Each thread gets its own array of counters the first time it reads them, so
+ * it can increment them without any synchronization, and registers the array so
+ * that {@link #sum()} can add up the counters of all threads. The data
+ * structure chooses the meaning of every index.
+ */
+final class ThreadCounters {
+	private final int numCounters;
+	private final ConcurrentLinkedQueue<long[]> allCounters = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<long[]> threadCounters = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			long[] counters = new long[numCounters];
+			allCounters.add(counters);
+			return counters;
+		}
+	};
+
+	/**
+	 * Creates zeroed counters.
+	 *
+	 * @param numCounters
+	 *            the number of counters of every thread
+	 */
+	ThreadCounters(int numCounters) {
+		this.numCounters = numCounters;
+	}
+
+	/**
+	 * Returns the counters of the calling thread, which only that thread may
+	 * update.
+	 */
+	long[] get() {
+		return threadCounters.get();
+	}
+
+	/**
+	 * Sums up the counters of every thread. If the counters are still being
+	 * updated, the sums are approximate.
+	 *
+	 * @return the sum of every counter
+	 */
+	long[] sum() {
+		long[] total = new long[numCounters];
+
+		for (long[] counters : allCounters) {
+			for (int i = 0; i < numCounters; i++) {
+				total[i] += counters[i];
+			}
+		}
+
+		return total;
+	}
+}
@@ -0,0 +1,422 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the Timestamped (TS) Stack.
+ *
+ * Every thread pushes into its own single-producer pool, a linked list that
+ * only its owner inserts into, and tags each item with a timestamp. A pop scans
+ * the top of every pool and removes the youngest item it found by setting its
+ * taken flag with a CAS. Timestamps are intervals, and items whose intervals
+ * overlap are unordered, so a pop may remove any of them. An item that was
+ * pushed after a pop started is removed immediately, which eliminates
+ * concurrent push and pop pairs without an elimination array. A pop only
+ * reports the stack as empty if it found all pools empty and no pool changed
+ * during its scan.
+ *
+ * The timestamping strategy is selected at construction:
+ * <ul>
+ * <li>{@link Timestamping#ATOMIC}: a shared counter incremented by every
+ * push</li>
+ * <li>{@link Timestamping#INTERVAL}: an interval of <code>System.nanoTime()</code>
+ * readings around a short delay</li>
+ * <li>{@link Timestamping#STUTTER}: one more than the largest timestamp of any
+ * thread, read without synchronization, so that concurrent pushes may get the
+ * same timestamp</li>
+ * </ul>
+ *
+ * Each thread that accesses the stack is assigned a pool the first time it
+ * does so, so the stack supports at most <code>maxThreads</code> distinct
+ * threads over its lifetime.
+ *
+ * @see <a href="https://doi.org/10.1145/2676726.2676963" target="_blank">Mike
+ *      Dodds, Andreas Haas, and Christoph M. Kirsch. 2015. A Scalable,
+ *      Correct Time-Stamped Stack. In Proceedings of the 42nd Annual ACM
+ *      SIGPLAN-SIGACT Symposium on Principles of Programming Languages (POPL
+ *      '15). ACM, New York, NY, USA, 233-246.</a>
+ */
+public class TimestampedStack<E> implements LockFreeStack<E>, DepthCounted {
+	private static final Logger logger = LoggerFactory.getLogger(TimestampedStack.class);
+
+	/**
+	 * Strategies for generating push timestamps.
+	 */
+	public static enum Timestamping {
+		ATOMIC, INTERVAL, STUTTER
+	};
+
+	private static final int DEFAULT_INTERVAL_DELAY = 1000; // nanoseconds
+
+	/*
+	 * Timestamp of items whose push has not yet been assigned a timestamp. It is
+	 * younger than any other timestamp, so such items are always eliminated.
+	 */
+	private static final Timestamp PENDING = new Timestamp(Long.MAX_VALUE, Long.MAX_VALUE);
+
+	// Statistics
+	private final AtomicInteger numPushes = new AtomicInteger(0);
+	private final AtomicInteger numPops = new AtomicInteger(0);
+	private final AtomicInteger numEliminations = new AtomicInteger(0);
+	private final AtomicInteger numCasFailures = new AtomicInteger(0);
+
+	/*
+	 * Approximate number of elements, updated after every successful operation.
+	 * An item eliminated by a concurrent pop was pushed into a pool and is
+	 * counted like any other item.
+	 */
+	private final DepthCounter depth = new DepthCounter();
+
+	private final Timestamping timestamping;
+	private final int intervalDelay; // nanoseconds
+	private final Pool<E>[] pools;
+
+	/*
+	 * Clocks of the atomic and stutter strategies.
+	 */
+	private final AtomicLong counter = new AtomicLong(0);
+	private final AtomicLongArray threadClocks;
+
+	private final AtomicInteger nextThreadId = new AtomicInteger(0);
+	private final ThreadLocal<Integer> threadId = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			int id = nextThreadId.getAndIncrement();
+
+			if (id >= pools.length) {
+				throw new IllegalStateException("TimestampedStack supports at most " + pools.length + " threads");
+			}
+
+			return id;
+		}
+	};
+
+	/**
+	 * Creates an empty TimestampedStack for at most <code>maxThreads</code>
+	 * threads, using the provided timestamping strategy.
+	 *
+	 * @param maxThreads
+	 *            the maximum number of distinct threads accessing the stack
+	 * @param timestamping
+	 *            the timestamping strategy
+	 */
+	public TimestampedStack(int maxThreads, Timestamping timestamping) {
+		this(maxThreads, timestamping, DEFAULT_INTERVAL_DELAY);
+	}
+
+	/**
+	 * Creates an empty TimestampedStack for at most <code>maxThreads</code>
+	 * threads, using the provided timestamping strategy. The
+	 * <code>intervalDelay</code> denotes the amount of time (nanoseconds) between
+	 * the start and the end of an interval timestamp, and is only used by the
+	 * {@link Timestamping#INTERVAL} strategy. Longer intervals overlap more
+	 * often, which gives pops more freedom in choosing an item.
+	 *
+	 * @param maxThreads
+	 *            the maximum number of distinct threads accessing the stack
+	 * @param timestamping
+	 *            the timestamping strategy
+	 * @param intervalDelay
+	 *            the length of interval timestamps in nanoseconds
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public TimestampedStack(int maxThreads, Timestamping timestamping, int intervalDelay) {
+		this.timestamping = timestamping;
+		this.intervalDelay = intervalDelay;
+		this.pools = new Pool[maxThreads];
+		this.threadClocks = new AtomicLongArray(maxThreads);
+
+		for (int i = 0; i < maxThreads; i++) {
+			pools[i] = new Pool<>();
+		}
+
+		logger.trace("Created TSStack with maxThreads = " + maxThreads + ", timestamping = " + timestamping);
+	}
+
+	/**
+	 * Inserts the provided data into the calling thread's pool and then assigns
+	 * it a timestamp.
+	 *
+	 * @param data
+	 *            the data to be pushed onto the stack
+	 */
+	@Override
+	public void push(E data) {
+		int tid = threadId.get();
+		Node<E> node = pools[tid].insert(data);
+		node.timestamp = newTimestamp(tid);
+
+		logger.trace("Successful push: " + data);
+		numPushes.incrementAndGet();
+		depth.increment();
+	}
+
+	/**
+	 * Removes the youngest item of all pools, or an item pushed concurrently with
+	 * the pop.
+	 *
+	 * @return the old top of stack, or <code>null</code> if the stack was empty
+	 */
+	@Override
+	public E pop() {
+		Timestamp startTime = currentTime();
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] tops = new Node[pools.length];
+
+		while (true) {
+			int start = ThreadLocalRandom.current().nextInt(pools.length);
+			Node<E> youngest = null;
+			boolean empty = true;
+
+			for (int i = 0; i < pools.length; i++) {
+				Pool<E> pool = pools[(start + i) % pools.length];
+				tops[(start + i) % pools.length] = pool.top.get();
+				Node<E> node = pool.youngest();
+
+				if (node == null) {
+					continue;
+				}
+
+				empty = false;
+				Timestamp timestamp = node.timestamp;
+
+				if (startTime.before(timestamp)) {
+					// Pushed after this pop started, eliminate it
+					if (node.taken.compareAndSet(false, true)) {
+						numEliminations.incrementAndGet();
+						return popped(node);
+					}
+
+					numCasFailures.incrementAndGet();
+					continue;
+				}
+
+				if (youngest == null || youngest.timestamp.before(timestamp)) {
+					youngest = node;
+				}
+			}
+
+			if (empty) {
+				if (unchanged(tops)) {
+					// Stack is empty
+					return null;
+				}
+
+				continue;
+			}
+
+			if (youngest != null && youngest.taken.compareAndSet(false, true)) {
+				return popped(youngest);
+			}
+
+			numCasFailures.incrementAndGet();
+		}
+	}
+
+	private E popped(Node<E> node) {
+		logger.trace("Successful pop: " + node.data);
+		numPops.incrementAndGet();
+		depth.decrement();
+		return node.data;
+	}
+
+	/**
+	 * Returns whether the top of every pool is still the provided one.
+	 */
+	private boolean unchanged(Node<E>[] tops) {
+		for (int i = 0; i < pools.length; i++) {
+			if (pools[i].top.get() != tops[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Generates a timestamp for a push by the thread with the provided id.
+	 */
+	private Timestamp newTimestamp(int tid) {
+		switch (timestamping) {
+		case ATOMIC:
+			long t = counter.getAndIncrement();
+			return new Timestamp(t, t);
+		case STUTTER:
+			long max = 0;
+
+			for (int i = 0; i < threadClocks.length(); i++) {
+				max = Math.max(max, threadClocks.get(i));
+			}
+
+			threadClocks.set(tid, max + 1);
+			return new Timestamp(max + 1, max + 1);
+		default:
+			long start = System.nanoTime();
+			long end = start + intervalDelay;
+
+			while (System.nanoTime() < end) {
+			}
+
+			return new Timestamp(start, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Returns a timestamp that is older than the timestamp of every push that
+	 * starts after this call.
+	 */
+	private Timestamp currentTime() {
+		switch (timestamping) {
+		case ATOMIC:
+			long t = counter.get() - 1;
+			return new Timestamp(t, t);
+		case STUTTER:
+			long max = 0;
+
+			for (int i = 0; i < threadClocks.length(); i++) {
+				max = Math.max(max, threadClocks.get(i));
+			}
+
+			return new Timestamp(max, max);
+		default:
+			long now = System.nanoTime();
+			return new Timestamp(now, now);
+		}
+	}
+
+	/**
+	 * Returns the approximate number of elements, read from striped per-thread
+	 * counters.
+	 */
+	@Override
+	public int size() {
+		return depth.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return depth.isEmpty();
+	}
+
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("pushes", (long) numPushes.get());
+		stats.put("pops", (long) numPops.get());
+		stats.put("eliminatedPops", (long) numEliminations.get());
+		stats.put("takeCasFailures", (long) numCasFailures.get());
+		return stats;
+	}
+
+	/**
+	 * Prints statistics about the stack to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Timestamping:          " + timestamping);
+		stream.println("Number of pushes:      " + numPushes.get());
+		stream.println("Number of pops:        " + numPops.get());
+		stream.println("Eliminated pops:       " + numEliminations.get());
+		stream.println("Take CAS failures:     " + numCasFailures.get());
+	}
+
+	/**
+	 * A timestamp interval. Timestamp <code>a</code> is older than
+	 * <code>b</code> if <code>a</code> ends before <code>b</code> starts;
+	 * overlapping timestamps are unordered.
+	 */
+	private static class Timestamp {
+		final long start;
+		final long end;
+
+		Timestamp(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		boolean before(Timestamp other) {
+			return end < other.start;
+		}
+	}
+
+	private static class Node<E> {
+		final E data;
+		volatile Timestamp timestamp;
+		volatile Node<E> next;
+		final AtomicBoolean taken;
+
+		Node(E data) {
+			this.data = data;
+			this.timestamp = PENDING;
+			this.taken = new AtomicBoolean(false);
+		}
+	}
+
+	/**
+	 * Single-producer pool. Only the owner inserts nodes, at the top; any thread
+	 * may take a node by setting its taken flag. Taken nodes at the top are
+	 * unlinked by whichever thread finds them there.
+	 */
+	private static class Pool<E> {
+		final AtomicReference<Node<E>> top = new AtomicReference<>(null);
+
+		/**
+		 * Inserts a new node at the top of the pool, unlinking the taken nodes at
+		 * the top on the way. Must only be called by the owner.
+		 */
+		Node<E> insert(E data) {
+			Node<E> node = new Node<>(data);
+
+			while (true) {
+				Node<E> oldTop = top.get();
+				Node<E> next = oldTop;
+
+				while (next != null && next.taken.get()) {
+					next = next.next;
+				}
+
+				node.next = next;
+
+				// Only fails if a concurrent pop unlinked taken nodes
+				if (top.compareAndSet(oldTop, node)) {
+					return node;
+				}
+			}
+		}
+
+		/**
+		 * Returns the youngest node of the pool that has not been taken, or
+		 * <code>null</code> if every node has been taken. The taken nodes above it
+		 * are unlinked.
+		 */
+		Node<E> youngest() {
+			Node<E> oldTop = top.get();
+			Node<E> node = oldTop;
+
+			while (node != null && node.taken.get()) {
+				node = node.next;
+			}
+
+			if (node != oldTop) {
+				top.compareAndSet(oldTop, node);
+			}
+
+			return node;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package io.github.chatzikalymnios.lfds;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of an unbounded lock-free queue of unrolled (segment)
+ * nodes.
+ *
+ * The queue is a linked list of segments, like the {@link MichaelScottQueue},
+ * but every segment holds a fixed-size array of items together with an enqueue
+ * and a dequeue index. An enqueue claims the next slot of the tail segment with
+ * a fetch-and-add on its enqueue index and stores the item with a CAS; a
+ * dequeue claims the next slot of the head segment the same way and swaps the
+ * item out for a marker. If a dequeue claims a slot before the item is stored,
+ * the enqueue finds the slot taken and retries with another slot. A new segment
+ * is only appended, with the same CAS protocol as the Michael-Scott queue, once
+ * every slot of the tail segment has been claimed.
+ *
+ * An item therefore costs a single array slot instead of a node and its
+ * <code>next</code> reference, and the fetch-and-add operations do not fail
+ * under contention the way the head and tail CAS operations do.
+ */
+public class UnrolledQueue<E> implements LockFreeQueue<E>, DepthCounted {
+	private static final Logger logger = LoggerFactory.getLogger(UnrolledQueue.class);
+
+	private static final int DEFAULT_SEGMENT_SIZE = 256;
+
+	/*
+	 * Stored in a slot once its item has been dequeued, or once a dequeue has
+	 * claimed the slot before the enqueue stored its item.
+	 */
+	private static final Object TAKEN = new Object();
+
+	// Statistics
+	private final AtomicInteger numEnqueues = new AtomicInteger(0);
+	private final AtomicInteger numDequeues = new AtomicInteger(0);
+	private final AtomicInteger numSegments = new AtomicInteger(1);
+	private final AtomicInteger numLostSlots = new AtomicInteger(0);
+
+	/*
+	 * Approximate number of elements, updated after every successful operation,
+	 * so slots lost to a dequeue are not counted.
+	 */
+	private final DepthCounter depth = new DepthCounter();
+
+	private final int segmentSize;
+	private final AtomicReference<Segment> queueHead;
+	private final AtomicReference<Segment> queueTail;
+
+	/**
+	 * Creates an empty UnrolledQueue with the default segment size.
+	 */
+	public UnrolledQueue() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates an empty UnrolledQueue whose segments hold
+	 * <code>segmentSize</code> items each. Larger segments amortize the segment
+	 * header and the segment allocation over more items, but the partially filled
+	 * head and tail segments retain more memory.
+	 *
+	 * @param segmentSize
+	 *            the number of items per segment
+	 */
+	public UnrolledQueue(int segmentSize) {
+		this.segmentSize = segmentSize;
+
+		Segment segment = new Segment(segmentSize);
+		queueHead = new AtomicReference<>(segment);
+		queueTail = new AtomicReference<>(segment);
+
+		logger.trace("Created UnrolledQueue with segmentSize = " + segmentSize);
+	}
+
+	/**
+	 * Stores the provided data in the next free slot of the tail segment,
+	 * appending a new segment if the tail segment is full.
+	 *
+	 * @param data
+	 *            the data to be enqueued
+	 */
+	@Override
+	public void enqueue(E data) {
+		while (true) {
+			Segment tail = queueTail.get();
+			int index = tail.enqIndex.getAndIncrement();
+
+			if (index >= segmentSize) {
+				if (tail != queueTail.get()) {
+					continue;
+				}
+
+				Segment next = tail.next.get();
+
+				if (next == null) {
+					Segment segment = new Segment(segmentSize, data);
+
+					if (tail.next.compareAndSet(null, segment)) {
+						// If unsuccessful, the tail was advanced by a concurrent thread
+						queueTail.compareAndSet(tail, segment);
+						numSegments.incrementAndGet();
+						break;
+					}
+				} else {
+					// Tail has fallen behind
+					// Try to advance it
+					queueTail.compareAndSet(tail, next);
+				}
+
+				continue;
+			}
+
+			if (tail.items.compareAndSet(index, null, data)) {
+				break;
+			}
+
+			// A dequeue claimed the slot first
+			numLostSlots.incrementAndGet();
+		}
+
+		logger.trace("Successful enqueue: " + data);
+		numEnqueues.incrementAndGet();
+		depth.increment();
+	}
+
+	/**
+	 * Takes the item of the next slot of the head segment, moving on to the next
+	 * segment once every slot of the head segment has been claimed.
+	 *
+	 * @return the old head of queue, or <code>null</code> if the queue was empty
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E dequeue() {
+		while (true) {
+			Segment head = queueHead.get();
+
+			if (head.deqIndex.get() >= head.enqIndex.get() && head.next.get() == null) {
+				// Queue is empty
+				return null;
+			}
+
+			int index = head.deqIndex.getAndIncrement();
+
+			if (index >= segmentSize) {
+				Segment next = head.next.get();
+
+				if (next == null) {
+					// Queue is empty
+					return null;
+				}
+
+				queueHead.compareAndSet(head, next);
+				continue;
+			}
+
+			Object item = head.items.getAndSet(index, TAKEN);
+
+			if (item == null) {
+				// Claimed before the enqueue stored its item, which will retry
+				continue;
+			}
+
+			logger.trace("Successful dequeue: " + item);
+			numDequeues.incrementAndGet();
+			depth.decrement();
+
+			return (E) item;
+		}
+	}
+
+	/**
+	 * Returns the approximate number of elements, read from striped per-thread
+	 * counters.
+	 */
+	@Override
+	public int size() {
+		return depth.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return depth.isEmpty();
+	}
+
+	@Override
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("segmentSize", (long) segmentSize);
+		stats.put("enqueues", (long) numEnqueues.get());
+		stats.put("dequeues", (long) numDequeues.get());
+		stats.put("allocatedSegments", (long) numSegments.get());
+		stats.put("lostEnqueueSlots", (long) numLostSlots.get());
+		return stats;
+	}
+
+	/**
+	 * Prints statistics about the unrolled queue to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print statistics to
+	 */
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Segment size:          " + segmentSize);
+		stream.println("Number of enqueues:    " + numEnqueues.get());
+		stream.println("Number of dequeues:    " + numDequeues.get());
+		stream.println("Allocated segments:    " + numSegments.get());
+		stream.println("Lost enqueue slots:    " + numLostSlots.get());
+	}
+
+	private static class Segment {
+		final AtomicReferenceArray<Object> items;
+		final AtomicInteger enqIndex;
+		final AtomicInteger deqIndex;
+		final AtomicReference<Segment> next;
+
+		Segment(int size) {
+			this.items = new AtomicReferenceArray<>(size);
+			this.enqIndex = new AtomicInteger(0);
+			this.deqIndex = new AtomicInteger(0);
+			this.next = new AtomicReference<>(null);
+		}
+
+		/*
+		 * Creates a segment whose first slot already holds the provided item.
+		 */
+		Segment(int size, Object item) {
+			this(size);
+			items.set(0, item);
+			enqIndex.set(1);
+		}
+	}
+}
@@ -1,6 +1,13 @@
 package io.github.chatzikalymnios.lfdsbenchmarker;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.cli.CommandLine;
@@ -13,10 +20,28 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.chatzikalymnios.lfds.ChaseLevDeque;
+import io.github.chatzikalymnios.lfds.EliminationBackoffQueue;
 import io.github.chatzikalymnios.lfds.EliminationBackoffStack;
+import io.github.chatzikalymnios.lfds.EliminationBackoffStack.Elimination;
+import io.github.chatzikalymnios.lfds.FlatCombiningQueue;
+import io.github.chatzikalymnios.lfds.FlatCombiningStack;
+import io.github.chatzikalymnios.lfds.HarrisMichaelList;
+import io.github.chatzikalymnios.lfds.KoganPetrankQueue;
+import io.github.chatzikalymnios.lfds.LockFreeDeque;
+import io.github.chatzikalymnios.lfds.LockFreePriorityQueue;
 import io.github.chatzikalymnios.lfds.LockFreeQueue;
+import io.github.chatzikalymnios.lfds.LockFreeSet;
 import io.github.chatzikalymnios.lfds.LockFreeStack;
 import io.github.chatzikalymnios.lfds.MichaelScottQueue;
+import io.github.chatzikalymnios.lfds.MultiQueue;
+import io.github.chatzikalymnios.lfds.ShardedStack;
+import io.github.chatzikalymnios.lfds.SkipListPriorityQueue;
+import io.github.chatzikalymnios.lfds.SplitOrderedHashSet;
+import io.github.chatzikalymnios.lfds.TimestampedStack;
+import io.github.chatzikalymnios.lfds.TimestampedStack.Timestamping;
+import io.github.chatzikalymnios.lfds.UnrolledQueue;
+import io.github.chatzikalymnios.lfdsbenchmarker.ArrivalSchedule.Distribution;
 
 public class App {
 	private static final Logger logger = LoggerFactory.getLogger(App.class);
@@ -24,24 +49,154 @@ public class App {
 	/* Data structure names */
 	private static final String EB_STACK = "EBStack";
 	private static final String MS_QUEUE = "MSQueue";
+	private static final String EB_QUEUE = "EBQueue";
+	private static final String KP_QUEUE = "KPQueue";
+	private static final String MULTI_QUEUE = "MultiQueue";
+	private static final String UNROLLED_QUEUE = "UnrolledQueue";
+	private static final String FC_STACK = "FCStack";
+	private static final String FC_QUEUE = "FCQueue";
+	private static final String SHARDED_STACK = "ShardedStack";
+	private static final String TS_STACK = "TSStack";
+	private static final String CL_DEQUE = "CLDeque";
+	private static final String SL_PQUEUE = "SLPQueue";
+	private static final String SPRAY_LIST = "SprayList";
+	private static final String HM_LIST = "HMList";
+	private static final String SO_HASH_SET = "SOHashSet";
+	private static final String CHM_SET = "CHMSet";
+
+	private static final String[] DATA_STRUCTURES = { EB_STACK, FC_STACK, SHARDED_STACK, TS_STACK, MS_QUEUE,
+			EB_QUEUE, KP_QUEUE, MULTI_QUEUE, UNROLLED_QUEUE, FC_QUEUE, CL_DEQUE, SL_PQUEUE, SPRAY_LIST, HM_LIST,
+			SO_HASH_SET, CHM_SET };
 
 	/* Default values */
 	private static final int DEFAULT_SPIN_DELAY = 100000; // nanoseconds
+	private static final Elimination DEFAULT_ELIMINATION = Elimination.COLLISION;
+	private static final Timestamping DEFAULT_TIMESTAMPING = Timestamping.INTERVAL;
+	private static final Distribution DEFAULT_ARRIVAL_DISTRIBUTION = Distribution.POISSON;
+	private static final int DEFAULT_QUEUES_PER_THREAD = 2;
+	private static final int DEFAULT_SEGMENT_SIZE = 256;
+	private static final int DEFAULT_READ_PERCENT = 80;
+	private static final int DEFAULT_INSERT_PERCENT = 10;
+	private static final int DEFAULT_KEY_RANGE = 1024;
+	private static final Workload.Type DEFAULT_WORKLOAD_TYPE = Workload.Type.CPU;
+	private static final int DEFAULT_WORKING_SET = 256; // KB
+	private static final PayloadFactory.Access DEFAULT_PAYLOAD_ACCESS = PayloadFactory.Access.NONE;
 
 	/* Command line options */
 	private static final Option HELP_OPTION = new Option("h", false, "print this message");
 	private static final Option NUM_THREADS_OPTION = Option.builder("t").argName("num").hasArg()
 			.desc("number of threads to use").required().build();
 	private static final Option DATA_STRUCTURE_OPTION = Option.builder("d").argName("datastructure").hasArg()
-			.desc("data structure to benchmark\n[" + EB_STACK + ", " + MS_QUEUE + "]").required().build();
+			.desc("data structure to benchmark\n[" + String.join(", ", DATA_STRUCTURES) + "]").required().build();
 	private static final Option NUM_ITEMS_OPTION = Option.builder("i").argName("num").hasArg()
-			.desc("number of items to insert and remove").required().build();
+			.desc("number of items to insert and remove (number of operations for sets)").required().build();
 	private static final Option WORKLOAD_OPTION = Option.builder("w").argName("microseconds").hasArg()
-			.desc("concurrent workload in microseconds").required().build();
+			.desc("concurrent workload in microseconds (fractions allowed)").required().build();
+	private static final Option WORKLOAD_TYPE_OPTION = Option.builder("W").argName("type").hasArg()
+			.desc("kind of concurrent workload\n" + Arrays.toString(Workload.Type.values()).toLowerCase()
+					+ " [default: " + DEFAULT_WORKLOAD_TYPE.toString().toLowerCase() + "]")
+			.build();
+	private static final Option WORKING_SET_OPTION = Option.builder("m").argName("KB").hasArg()
+			.desc("working-set size of every thread (applicable to the memory workload) [default: "
+					+ DEFAULT_WORKING_SET + "]")
+			.build();
 	private static final Option SPIN_DELAY_OPTION = Option.builder("s").argName("nanoseconds").hasArg()
-			.desc("amount of time to wait for elimination partner in nanoseconds (applicable to " + EB_STACK
-					+ ") [default: 100000]")
+			.desc("amount of time to wait for elimination partner in nanoseconds (applicable to " + EB_STACK + ", "
+					+ EB_QUEUE + ") [default: 100000]")
+			.build();
+	private static final Option ELIMINATION_OPTION = Option.builder("e").argName("protocol").hasArg()
+			.desc("elimination protocol (applicable to " + EB_STACK + ")\n"
+					+ Arrays.toString(Elimination.values()).toLowerCase() + " [default: "
+					+ DEFAULT_ELIMINATION.toString().toLowerCase() + "]")
+			.build();
+	private static final Option NUM_PRODUCERS_OPTION = Option.builder("p").argName("num").hasArg()
+			.desc("number of producer threads, the remaining threads consume concurrently (applicable to queues) "
+					+ "[default: every thread enqueues, then dequeues]")
+			.build();
+	private static final Option CONTENTION_STATS_OPTION = new Option("c", false,
+			"collect per-thread contention statistics (CAS failures, helping, elimination slot heatmap)");
+	private static final Option LATENCY_OPTION = new Option("l", false,
+			"record per-operation latencies and report their percentiles (applicable to stacks and queues)");
+	private static final Option ARRIVAL_RATE_OPTION = Option.builder("r").argName("ops/sec").hasArg()
+			.desc("run open loop, with every thread issuing this many operations per second and latencies measured "
+					+ "from the intended start times (applicable to stacks and queues) [default: closed loop]")
+			.build();
+	private static final Option ARRIVAL_DISTRIBUTION_OPTION = Option.builder("a").argName("distribution").hasArg()
+			.desc("distribution of the open-loop inter-arrival times\n"
+					+ Arrays.toString(Distribution.values()).toLowerCase() + " [default: "
+					+ DEFAULT_ARRIVAL_DISTRIBUTION.toString().toLowerCase() + "]")
+			.build();
+	private static final Option NUM_FORKS_OPTION = Option.builder("f").argName("num").hasArg()
+			.desc("run this many trials, each in a fresh child JVM [default: a single trial in this JVM]").build();
+	private static final Option JVM_FLAGS_OPTION = Option.builder("j").argName("flags").hasArg()
+			.desc("space-separated flags of the child JVMs, e.g. -j=\"-Xmx2g -XX:+UseParallelGC\" (applicable with -f)")
+			.build();
+	private static final Option SAMPLE_INTERVAL_OPTION = Option.builder("S").argName("milliseconds").hasArg()
+			.desc("print the throughput every this many milliseconds while the benchmark runs, and expose the live "
+					+ "values as a JMX MBean (applicable to stacks and queues); with -A, the length of the timeline "
+					+ "intervals [default: 1/20 of the run]")
+			.build();
+	private static final Option EXPORT_OPTION = Option.builder("E").argName("file").hasArg()
+			.desc("export the sampled timeline, with per-thread operation counts and data structure statistics, to "
+					+ "this CSV file (applicable with -S)")
+			.build();
+	private static final Option JOURNAL_OPTION = Option.builder("J").argName("file").hasArg()
+			.desc("record every operation in this memory-mapped journal file, for analysis with -A (applicable to "
+					+ "stacks and queues)")
+			.build();
+	private static final Option ANALYZE_OPTION = Option.builder("A").argName("file").hasArg()
+			.desc("print latency histograms, a timeline and per-thread breakdowns of this journal file written "
+					+ "with -J, instead of running a benchmark (the other options except -S are ignored)")
+			.build();
+	private static final Option ORDER_DEVIATION_OPTION = new Option("o", false,
+			"measure the order deviation of the dequeues (applicable to queues)");
+	private static final Option QUEUES_PER_THREAD_OPTION = Option.builder("k").argName("num").hasArg()
+			.desc("number of sub-queues per thread, i.e. the relaxation factor (applicable to MultiQueue) [default: "
+					+ DEFAULT_QUEUES_PER_THREAD + "]")
+			.build();
+	private static final Option SEGMENT_SIZE_OPTION = Option.builder("u").argName("num").hasArg()
+			.desc("number of items per segment (applicable to " + UNROLLED_QUEUE + ") [default: "
+					+ DEFAULT_SEGMENT_SIZE + "]")
 			.build();
+	private static final Option PIPELINE_OPTION = Option.builder("q").argName("stages").hasArg()
+			.desc("benchmark a pipeline of comma-separated stages connected by queues, each given as "
+					+ "threads[:microseconds], e.g. 1,2:5,1 (applicable to queues, overrides -t) [default: a "
+					+ "single queue]")
+			.build();
+	private static final Option SCENARIO_OPTION = Option.builder("x").argName("file").hasArg()
+			.desc("run the phases of this scenario file instead of the default benchmark (applicable to stacks and "
+					+ "queues, overrides -t and -i)")
+			.build();
+	private static final Option FOOTPRINT_OPTION = new Option("F", false,
+			"measure the heap retained per item with the queue full, instead of the throughput (applicable to "
+					+ "queues)");
+	private static final Option SIZE_OPTION = new Option("z", false,
+			"measure the cost of the size bookkeeping and the latency of size(), instead of the default benchmark "
+					+ "(applicable to stacks and queues)");
+	private static final Option PAYLOAD_SIZE_OPTION = Option.builder("y").argName("bytes").hasArg()
+			.desc("size of the data carried by every item (applicable to stacks and queues) [default: 0]").build();
+	private static final Option FRESH_PAYLOAD_OPTION = new Option("n", false,
+			"allocate every item right before it is inserted, instead of before the benchmark starts (applicable "
+					+ "to stacks and queues)");
+	private static final Option PAYLOAD_ACCESS_OPTION = Option.builder("Y").argName("access").hasArg()
+			.desc("how the consumer accesses the data of a removed item (applicable to stacks and queues)\n"
+					+ Arrays.toString(PayloadFactory.Access.values()).toLowerCase() + " [default: "
+					+ DEFAULT_PAYLOAD_ACCESS.toString().toLowerCase() + "]")
+			.build();
+	private static final Option TIMESTAMPING_OPTION = Option.builder("T").argName("strategy").hasArg()
+			.desc("timestamping strategy (applicable to " + TS_STACK + ")\n"
+					+ Arrays.toString(Timestamping.values()).toLowerCase() + " [default: "
+					+ DEFAULT_TIMESTAMPING.toString().toLowerCase() + "]")
+			.build();
+	private static final Option READ_PERCENT_OPTION = Option.builder("R").argName("percent").hasArg()
+			.desc("percentage of contains operations (applicable to sets) [default: " + DEFAULT_READ_PERCENT + "]")
+			.build();
+	private static final Option INSERT_PERCENT_OPTION = Option.builder("I").argName("percent").hasArg()
+			.desc("percentage of add operations, the remaining operations are removes (applicable to sets) [default: "
+					+ DEFAULT_INSERT_PERCENT + "]")
+			.build();
+	private static final Option KEY_RANGE_OPTION = Option.builder("K").argName("num").hasArg()
+			.desc("number of distinct keys (applicable to sets) [default: " + DEFAULT_KEY_RANGE + "]").build();
 
 	private static final Options allOptions = new Options();
 
@@ -51,7 +206,35 @@ public class App {
 		allOptions.addOption(DATA_STRUCTURE_OPTION);
 		allOptions.addOption(NUM_ITEMS_OPTION);
 		allOptions.addOption(WORKLOAD_OPTION);
+		allOptions.addOption(WORKLOAD_TYPE_OPTION);
+		allOptions.addOption(WORKING_SET_OPTION);
 		allOptions.addOption(SPIN_DELAY_OPTION);
+		allOptions.addOption(ELIMINATION_OPTION);
+		allOptions.addOption(CONTENTION_STATS_OPTION);
+		allOptions.addOption(NUM_PRODUCERS_OPTION);
+		allOptions.addOption(LATENCY_OPTION);
+		allOptions.addOption(ARRIVAL_RATE_OPTION);
+		allOptions.addOption(ARRIVAL_DISTRIBUTION_OPTION);
+		allOptions.addOption(NUM_FORKS_OPTION);
+		allOptions.addOption(JVM_FLAGS_OPTION);
+		allOptions.addOption(SAMPLE_INTERVAL_OPTION);
+		allOptions.addOption(EXPORT_OPTION);
+		allOptions.addOption(JOURNAL_OPTION);
+		allOptions.addOption(ANALYZE_OPTION);
+		allOptions.addOption(ORDER_DEVIATION_OPTION);
+		allOptions.addOption(QUEUES_PER_THREAD_OPTION);
+		allOptions.addOption(SEGMENT_SIZE_OPTION);
+		allOptions.addOption(PIPELINE_OPTION);
+		allOptions.addOption(SCENARIO_OPTION);
+		allOptions.addOption(FOOTPRINT_OPTION);
+		allOptions.addOption(SIZE_OPTION);
+		allOptions.addOption(PAYLOAD_SIZE_OPTION);
+		allOptions.addOption(FRESH_PAYLOAD_OPTION);
+		allOptions.addOption(PAYLOAD_ACCESS_OPTION);
+		allOptions.addOption(TIMESTAMPING_OPTION);
+		allOptions.addOption(READ_PERCENT_OPTION);
+		allOptions.addOption(INSERT_PERCENT_OPTION);
+		allOptions.addOption(KEY_RANGE_OPTION);
 	}
 
 	private void printHelp() {
@@ -63,12 +246,81 @@ public class App {
 		return Arrays.asList(args).contains("-h");
 	}
 
+	private boolean checkAnalyzeOption(String[] args) {
+		return Arrays.asList(args).contains("-A");
+	}
+
+	/**
+	 * Analyzes the journal file given with <code>-A</code>, ignoring the
+	 * benchmark options.
+	 */
+	private void analyzeJournal(String[] args) {
+		// Accept the benchmark options without requiring them
+		Options analyzeOptions = new Options();
+
+		for (Option option : allOptions.getOptions()) {
+			Option copy = (Option) option.clone();
+			copy.setRequired(false);
+			analyzeOptions.addOption(copy);
+		}
+
+		CommandLine line = null;
+
+		try {
+			line = new DefaultParser().parse(analyzeOptions, args);
+		} catch (ParseException e) {
+			logger.error("Command line parsing failed: " + e.getMessage());
+			printHelp();
+			System.exit(1);
+		}
+
+		int interval = parseIntOption(line, SAMPLE_INTERVAL_OPTION, "timeline interval", 0, 1, Integer.MAX_VALUE);
+
+		try {
+			new JournalAnalyzer(new File(line.getOptionValue(ANALYZE_OPTION.getOpt())), interval).run(System.out);
+		} catch (IOException e) {
+			logger.error("Could not analyze journal: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Parses the value of an optional integer option, exiting if it is not an
+	 * integer in <code>[min, max]</code>.
+	 */
+	private int parseIntOption(CommandLine line, Option option, String name, int defaultValue, int min, int max) {
+		if (!line.hasOption(option.getOpt())) {
+			return defaultValue;
+		}
+
+		int value = 0;
+
+		try {
+			value = Integer.parseInt(line.getOptionValue(option.getOpt()));
+		} catch (NumberFormatException e) {
+			logger.error("Invalid " + name + ": " + line.getOptionValue(option.getOpt()));
+			System.exit(1);
+		}
+
+		if (value < min || value > max) {
+			logger.error("Invalid " + name + ": " + value);
+			System.exit(1);
+		}
+
+		return value;
+	}
+
 	public void run(String[] args) {
 		if (checkHelpOption(args)) {
 			printHelp();
 			return;
 		}
 
+		if (checkAnalyzeOption(args)) {
+			analyzeJournal(args);
+			return;
+		}
+
 		CommandLineParser parser = new DefaultParser();
 		CommandLine line = null;
 
@@ -113,17 +365,17 @@ public class App {
 		}
 
 		// Workload option
-		int workload = 0;
+		double workloadMicroseconds = 0;
 
 		try {
-			workload = Integer.parseInt(line.getOptionValue(WORKLOAD_OPTION.getOpt()));
+			workloadMicroseconds = Double.parseDouble(line.getOptionValue(WORKLOAD_OPTION.getOpt()));
 		} catch (NumberFormatException e) {
 			logger.error("Invalid workload: " + line.getOptionValue(WORKLOAD_OPTION.getOpt()));
 			System.exit(1);
 		}
 
-		if (workload < 0) {
-			logger.error("Invalid workload: " + workload);
+		if (!(workloadMicroseconds >= 0)) {
+			logger.error("Invalid workload: " + workloadMicroseconds);
 			System.exit(1);
 		}
 
@@ -140,26 +392,304 @@ public class App {
 		}
 
 		if (spinDelay < 0) {
-			logger.error("Invalid spin: " + workload);
+			logger.error("Invalid spin: " + spinDelay);
 			System.exit(1);
 		}
 
+		// Elimination protocol option
+		Elimination elimination = DEFAULT_ELIMINATION;
+
+		if (line.hasOption(ELIMINATION_OPTION.getOpt())) {
+			try {
+				elimination = Elimination.valueOf(line.getOptionValue(ELIMINATION_OPTION.getOpt()).toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid elimination protocol: " + line.getOptionValue(ELIMINATION_OPTION.getOpt()));
+				System.exit(1);
+			}
+		}
+
+		// Number of producers option
+		int numProducers = 0;
+
+		if (line.hasOption(NUM_PRODUCERS_OPTION.getOpt())) {
+			try {
+				numProducers = Integer.parseInt(line.getOptionValue(NUM_PRODUCERS_OPTION.getOpt()));
+			} catch (NumberFormatException e) {
+				logger.error("Invalid number of producers: " + line.getOptionValue(NUM_PRODUCERS_OPTION.getOpt()));
+				System.exit(1);
+			}
+
+			if (numProducers < 1 || numProducers >= numThreads) {
+				logger.error("Invalid number of producers: " + numProducers);
+				System.exit(1);
+			}
+		}
+
+		// Contention statistics option
+		boolean instrumented = line.hasOption(CONTENTION_STATS_OPTION.getOpt());
+
+		// Latency option
+		boolean recordLatency = line.hasOption(LATENCY_OPTION.getOpt());
+
+		// Open-loop options
+		ArrivalSchedule arrivals = null;
+
+		if (line.hasOption(ARRIVAL_RATE_OPTION.getOpt())) {
+			double rate = 0;
+
+			try {
+				rate = Double.parseDouble(line.getOptionValue(ARRIVAL_RATE_OPTION.getOpt()));
+			} catch (NumberFormatException e) {
+				logger.error("Invalid arrival rate: " + line.getOptionValue(ARRIVAL_RATE_OPTION.getOpt()));
+				System.exit(1);
+			}
+
+			if (!(rate > 0)) {
+				logger.error("Invalid arrival rate: " + rate);
+				System.exit(1);
+			}
+
+			Distribution distribution = DEFAULT_ARRIVAL_DISTRIBUTION;
+
+			if (line.hasOption(ARRIVAL_DISTRIBUTION_OPTION.getOpt())) {
+				try {
+					distribution = Distribution
+							.valueOf(line.getOptionValue(ARRIVAL_DISTRIBUTION_OPTION.getOpt()).toUpperCase());
+				} catch (IllegalArgumentException e) {
+					logger.error("Invalid arrival distribution: "
+							+ line.getOptionValue(ARRIVAL_DISTRIBUTION_OPTION.getOpt()));
+					System.exit(1);
+				}
+			}
+
+			arrivals = new ArrivalSchedule(rate, distribution);
+		}
+
+		// Sampling options
+		int sampleInterval = parseIntOption(line, SAMPLE_INTERVAL_OPTION, "sampling interval", 0, 1,
+				Integer.MAX_VALUE);
+
+		// Journal option
+		File journalFile = line.hasOption(JOURNAL_OPTION.getOpt())
+				? new File(line.getOptionValue(JOURNAL_OPTION.getOpt())) : null;
+
+		// Order deviation option
+		boolean measureOrder = line.hasOption(ORDER_DEVIATION_OPTION.getOpt());
+
+		// Sub-queues per thread option
+		int queuesPerThread = parseIntOption(line, QUEUES_PER_THREAD_OPTION, "number of sub-queues per thread",
+				DEFAULT_QUEUES_PER_THREAD, 1, Integer.MAX_VALUE);
+
+		// Segment size option
+		int segmentSize = parseIntOption(line, SEGMENT_SIZE_OPTION, "segment size", DEFAULT_SEGMENT_SIZE, 1,
+				Integer.MAX_VALUE);
+
+		// Footprint option
+		boolean footprint = line.hasOption(FOOTPRINT_OPTION.getOpt());
+
+		// Size bookkeeping option
+		boolean measureSize = line.hasOption(SIZE_OPTION.getOpt());
+
+		// Payload options
+		int payloadSize = parseIntOption(line, PAYLOAD_SIZE_OPTION, "payload size", 0, 0, Integer.MAX_VALUE);
+		boolean freshPayloads = line.hasOption(FRESH_PAYLOAD_OPTION.getOpt());
+		PayloadFactory.Access payloadAccess = DEFAULT_PAYLOAD_ACCESS;
+
+		if (line.hasOption(PAYLOAD_ACCESS_OPTION.getOpt())) {
+			try {
+				payloadAccess = PayloadFactory.Access
+						.valueOf(line.getOptionValue(PAYLOAD_ACCESS_OPTION.getOpt()).toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid payload access: " + line.getOptionValue(PAYLOAD_ACCESS_OPTION.getOpt()));
+				System.exit(1);
+			}
+		}
+
+		// Timestamping option
+		Timestamping timestamping = DEFAULT_TIMESTAMPING;
+
+		if (line.hasOption(TIMESTAMPING_OPTION.getOpt())) {
+			try {
+				timestamping = Timestamping.valueOf(line.getOptionValue(TIMESTAMPING_OPTION.getOpt()).toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid timestamping strategy: " + line.getOptionValue(TIMESTAMPING_OPTION.getOpt()));
+				System.exit(1);
+			}
+		}
+
+		// Set workload options
+		int readPercent = parseIntOption(line, READ_PERCENT_OPTION, "read percentage", DEFAULT_READ_PERCENT, 0, 100);
+		int insertPercent = parseIntOption(line, INSERT_PERCENT_OPTION, "insert percentage", DEFAULT_INSERT_PERCENT,
+				0, 100 - readPercent);
+		int keyRange = parseIntOption(line, KEY_RANGE_OPTION, "key range", DEFAULT_KEY_RANGE, 1, Integer.MAX_VALUE);
+
+		// Workload type options
+		Workload.Type workloadType = DEFAULT_WORKLOAD_TYPE;
+
+		if (line.hasOption(WORKLOAD_TYPE_OPTION.getOpt())) {
+			try {
+				workloadType = Workload.Type.valueOf(line.getOptionValue(WORKLOAD_TYPE_OPTION.getOpt()).toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid workload type: " + line.getOptionValue(WORKLOAD_TYPE_OPTION.getOpt()));
+				System.exit(1);
+			}
+		}
+
+		int workingSet = parseIntOption(line, WORKING_SET_OPTION, "working-set size", DEFAULT_WORKING_SET, 1,
+				Integer.MAX_VALUE / 1024);
+
+		// Fork options
+		int numForks = parseIntOption(line, NUM_FORKS_OPTION, "number of forks", 0, 1, Integer.MAX_VALUE);
+
+		if (numForks > 0) {
+			runForks(line, numForks);
+			return;
+		}
+
+		Workload workload = Workload.create(workloadType, workloadMicroseconds, workingSet * 1024);
+		PayloadFactory payloads = new PayloadFactory(payloadSize, freshPayloads, payloadAccess);
+		Sampler sampler = null;
+
+		if (sampleInterval > 0) {
+			PrintWriter export = null;
+
+			if (line.hasOption(EXPORT_OPTION.getOpt())) {
+				try {
+					export = new PrintWriter(new FileWriter(line.getOptionValue(EXPORT_OPTION.getOpt())));
+				} catch (IOException e) {
+					logger.error("Could not open export file: " + e.getMessage());
+					System.exit(1);
+				}
+			}
+
+			sampler = new Sampler(sampleInterval, export);
+		}
+
+		List<PipelineBenchmark.Stage> pipeline = null;
+
+		if (line.hasOption(PIPELINE_OPTION.getOpt())) {
+			pipeline = parsePipeline(line.getOptionValue(PIPELINE_OPTION.getOpt()), workloadType, workingSet * 1024,
+					workload);
+		}
+
+		Scenario scenario = null;
+
+		if (line.hasOption(SCENARIO_OPTION.getOpt())) {
+			String file = line.getOptionValue(SCENARIO_OPTION.getOpt());
+
+			try (FileReader reader = new FileReader(file)) {
+				scenario = Scenario.parse(reader, workloadType, workingSet * 1024, workload);
+			} catch (IOException e) {
+				logger.error("Could not read scenario: " + e.getMessage());
+				System.exit(1);
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid scenario " + file + ": " + e.getMessage());
+				System.exit(1);
+			}
+
+			numThreads = scenario.getMaxThreads();
+		}
+
 		Benchmark benchmark = null;
 
 		switch (dataStructure) {
 		case EB_STACK:
-			LockFreeStack<Integer> stack = new EliminationBackoffStack<>(numThreads, spinDelay);
-			benchmark = new StackBenchmark(stack, numThreads, numItems, workload);
+		case FC_STACK:
+		case SHARDED_STACK:
+		case TS_STACK:
+			if (scenario != null) {
+				benchmark = new ScenarioBenchmark(this.<Integer>createStack(dataStructure, numThreads, spinDelay,
+						instrumented, elimination, timestamping), scenario);
+				break;
+			}
+
+			if (measureSize) {
+				benchmark = new SizeBenchmark(this.<Integer>createStack(dataStructure, numThreads, spinDelay,
+						instrumented, elimination, timestamping), numThreads, numItems, workload);
+				break;
+			}
+
+			LockFreeStack<Object> stack = createStack(dataStructure, numThreads, spinDelay, instrumented,
+					elimination, timestamping);
+			benchmark = new StackBenchmark(stack, numThreads, numItems, workload, recordLatency, arrivals, sampler,
+					payloads, journalFile);
 			break;
 		case MS_QUEUE:
-			LockFreeQueue<Integer> queue = new MichaelScottQueue<>();
-			benchmark = new QueueBenchmark(queue, numThreads, numItems, workload);
+		case EB_QUEUE:
+		case KP_QUEUE:
+		case MULTI_QUEUE:
+		case UNROLLED_QUEUE:
+		case FC_QUEUE:
+			if (pipeline != null) {
+				// Each queue is shared by the threads of the stages before and after it
+				List<LockFreeQueue<Integer>> queues = new ArrayList<>();
+				for (int i = 0; i < pipeline.size() - 1; i++) {
+					int queueThreads = pipeline.get(i).getNumThreads() + pipeline.get(i + 1).getNumThreads();
+					queues.add(createQueue(dataStructure, queueThreads, spinDelay, instrumented, queuesPerThread,
+							segmentSize));
+				}
+				benchmark = new PipelineBenchmark(pipeline, queues, numItems);
+				break;
+			}
+
+			if (scenario != null) {
+				benchmark = new ScenarioBenchmark(this.<Integer>createQueue(dataStructure, numThreads, spinDelay,
+						instrumented, queuesPerThread, segmentSize), scenario);
+				break;
+			}
+
+			if (measureSize) {
+				benchmark = new SizeBenchmark(this.<Integer>createQueue(dataStructure, numThreads, spinDelay,
+						instrumented, queuesPerThread, segmentSize), numThreads, numItems, workload);
+				break;
+			}
+
+			if (footprint) {
+				benchmark = new FootprintBenchmark(this.<Integer>createQueue(dataStructure, numThreads, spinDelay,
+						instrumented, queuesPerThread, segmentSize), numItems);
+				break;
+			}
+
+			LockFreeQueue<Object> queue = createQueue(dataStructure, numThreads, spinDelay, instrumented,
+					queuesPerThread, segmentSize);
+			benchmark = new QueueBenchmark(queue, numThreads, numProducers, numItems, workload, recordLatency,
+					measureOrder, arrivals, sampler, payloads, journalFile);
+			break;
+		case CL_DEQUE:
+			// One deque per worker thread
+			List<LockFreeDeque<Integer>> deques = new ArrayList<>(numThreads);
+			for (int i = 0; i < numThreads; i++) {
+				deques.add(new ChaseLevDeque<>());
+			}
+			benchmark = new DequeBenchmark(deques, numItems, workload);
+			break;
+		case SL_PQUEUE:
+			LockFreePriorityQueue<Integer> pq = new SkipListPriorityQueue<>();
+			benchmark = new PriorityQueueBenchmark(pq, numThreads, numItems, workload);
+			break;
+		case SPRAY_LIST:
+			pq = new SkipListPriorityQueue<>(numThreads);
+			benchmark = new PriorityQueueBenchmark(pq, numThreads, numItems, workload);
+			break;
+		case HM_LIST:
+			LockFreeSet<Integer> set = new HarrisMichaelList<>();
+			benchmark = new SetBenchmark(set, numThreads, numItems, workload, readPercent, insertPercent, keyRange);
+			break;
+		case SO_HASH_SET:
+			set = new SplitOrderedHashSet<>();
+			benchmark = new SetBenchmark(set, numThreads, numItems, workload, readPercent, insertPercent, keyRange);
+			break;
+		case CHM_SET:
+			set = new ConcurrentHashMapSet<>();
+			benchmark = new SetBenchmark(set, numThreads, numItems, workload, readPercent, insertPercent, keyRange);
 			break;
 		default:
 			logger.error("Unknown data structure: " + dataStructure);
 			System.exit(1);
 		}
 
+		System.out.println("Workload: " + workload);
+
 		try {
 			benchmark.run();
 		} catch (InterruptedException | ExecutionException e) {
@@ -168,6 +698,132 @@ public class App {
 		}
 	}
 
+	/**
+	 * Creates the stack with the provided name for <code>numThreads</code>
+	 * concurrent threads.
+	 */
+	private <E> LockFreeStack<E> createStack(String dataStructure, int numThreads, int spinDelay,
+			boolean instrumented, Elimination elimination, Timestamping timestamping) {
+		switch (dataStructure) {
+		case FC_STACK:
+			return new FlatCombiningStack<>();
+		case SHARDED_STACK:
+			return new ShardedStack<>(numThreads);
+		case TS_STACK:
+			// The main thread also accesses the stack to check that it is empty
+			return new TimestampedStack<>(numThreads + 1, timestamping);
+		default:
+			return new EliminationBackoffStack<>(numThreads, spinDelay, instrumented, elimination);
+		}
+	}
+
+	/**
+	 * Creates the queue with the provided name for <code>numThreads</code>
+	 * concurrent threads.
+	 */
+	private <E> LockFreeQueue<E> createQueue(String dataStructure, int numThreads, int spinDelay,
+			boolean instrumented, int queuesPerThread, int segmentSize) {
+		switch (dataStructure) {
+		case EB_QUEUE:
+			return new EliminationBackoffQueue<>(numThreads, spinDelay, instrumented);
+		case KP_QUEUE:
+			// The main thread also accesses the queue to check that it is empty
+			return new KoganPetrankQueue<>(numThreads + 1);
+		case MULTI_QUEUE:
+			return new MultiQueue<>(queuesPerThread * numThreads);
+		case UNROLLED_QUEUE:
+			return new UnrolledQueue<>(segmentSize);
+		case FC_QUEUE:
+			return new FlatCombiningQueue<>();
+		default:
+			return new MichaelScottQueue<>(instrumented);
+		}
+	}
+
+	/**
+	 * Parses the stages of a pipeline, given as comma-separated
+	 * <code>threads[:microseconds]</code>, exiting if they are invalid. Stages
+	 * without a duration run the default workload.
+	 */
+	private List<PipelineBenchmark.Stage> parsePipeline(String value, Workload.Type workloadType,
+			int workingSetBytes, Workload defaultWorkload) {
+		List<PipelineBenchmark.Stage> stages = new ArrayList<>();
+
+		for (String stage : value.split(",")) {
+			String[] parts = stage.trim().split(":");
+			int threads = 0;
+			Workload workload = defaultWorkload;
+
+			try {
+				threads = Integer.parseInt(parts[0]);
+
+				if (parts.length == 2) {
+					double microseconds = Double.parseDouble(parts[1]);
+
+					if (!(microseconds >= 0)) {
+						throw new NumberFormatException();
+					}
+
+					workload = Workload.create(workloadType, microseconds, workingSetBytes);
+				}
+			} catch (NumberFormatException e) {
+				logger.error("Invalid pipeline stage: " + stage);
+				System.exit(1);
+			}
+
+			if (threads < 1 || parts.length > 2) {
+				logger.error("Invalid pipeline stage: " + stage);
+				System.exit(1);
+			}
+
+			stages.add(new PipelineBenchmark.Stage(threads, workload));
+		}
+
+		if (stages.size() < 2) {
+			logger.error("Invalid pipeline: " + value + " (at least two stages are required)");
+			System.exit(1);
+		}
+
+		return stages;
+	}
+
+	/**
+	 * Runs the benchmark described by the command line in <code>numForks</code>
+	 * child JVMs, passing on every option except for the fork options.
+	 */
+	private void runForks(CommandLine line, int numForks) {
+		List<String> jvmFlags = new ArrayList<>();
+
+		if (line.hasOption(JVM_FLAGS_OPTION.getOpt())) {
+			for (String flag : line.getOptionValue(JVM_FLAGS_OPTION.getOpt()).trim().split("\\s+")) {
+				if (!flag.isEmpty()) {
+					jvmFlags.add(flag);
+				}
+			}
+		}
+
+		List<String> childArgs = new ArrayList<>();
+
+		for (Option option : line.getOptions()) {
+			if (option.getOpt().equals(NUM_FORKS_OPTION.getOpt()) || option.getOpt().equals(JVM_FLAGS_OPTION.getOpt())) {
+				continue;
+			}
+
+			childArgs.add("-" + option.getOpt());
+
+			if (option.hasArg()) {
+				childArgs.add(option.getValue());
+			}
+		}
+
+		try {
+			new ForkRunner(numForks, jvmFlags, childArgs).run();
+		} catch (IOException | InterruptedException e) {
+			logger.error("Forked benchmark ended with an exception: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
 	public static void main(String[] args) {
 		new App().run(args);
 	}
@@ -0,0 +1,115 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes an open-loop arrival process: every worker issues operations at a
+ * target rate, with either fixed or exponentially distributed (Poisson)
+ * inter-arrival times, regardless of how long the previous operations took.
+ *
+ * Each worker paces itself with its own {@link Pacer}, which returns the
+ * intended start time of every operation. Measuring latency from the intended
+ * start time, rather than from the time the operation was actually issued,
+ * includes the time an operation waited behind slower ones, and so avoids
+ * coordinated omission.
+ */
+public class ArrivalSchedule {
+	private static final double NANO_IN_SECONDS = 1e9;
+
+	/*
+	 * Waits longer than this are parked instead of busy-waited, so that idle
+	 * workers leave the processors to the others.
+	 */
+	private static final long PARK_THRESHOLD = 50000; // nanoseconds
+
+	/**
+	 * Inter-arrival time distributions.
+	 */
+	public static enum Distribution {
+		FIXED, POISSON
+	};
+
+	private final double ratePerThread;
+	private final Distribution distribution;
+
+	/**
+	 * Creates an arrival schedule with the specified per-thread rate.
+	 *
+	 * @param ratePerThread
+	 *            the target number of operations per second of every worker
+	 * @param distribution
+	 *            the distribution of the inter-arrival times
+	 */
+	public ArrivalSchedule(double ratePerThread, Distribution distribution) {
+		this.ratePerThread = ratePerThread;
+		this.distribution = distribution;
+	}
+
+	public double getRatePerThread() {
+		return ratePerThread;
+	}
+
+	public Distribution getDistribution() {
+		return distribution;
+	}
+
+	/**
+	 * Creates a pacer for a single worker.
+	 *
+	 * @param seed
+	 *            the seed of the worker's inter-arrival times
+	 * @return a new pacer
+	 */
+	public Pacer createPacer(long seed) {
+		return new Pacer(seed);
+	}
+
+	/**
+	 * Paces the operations of a single worker. A Pacer is not thread-safe.
+	 */
+	public class Pacer {
+		private final Random random;
+		private final double meanInterval; // nanoseconds
+		private long next;
+
+		private Pacer(long seed) {
+			this.random = new Random(seed);
+			this.meanInterval = NANO_IN_SECONDS / ratePerThread;
+		}
+
+		/**
+		 * Waits until the intended start time of the next operation. The first
+		 * operation is intended to start immediately. If the worker has fallen
+		 * behind schedule, the method returns without waiting.
+		 *
+		 * @return the intended start time of the next operation, comparable to
+		 *         <code>System.nanoTime()</code>
+		 */
+		public long awaitNext() {
+			if (next == 0) {
+				next = System.nanoTime();
+			} else {
+				next += nextInterval();
+			}
+
+			long remaining;
+
+			while ((remaining = next - System.nanoTime()) > 0) {
+				if (remaining > PARK_THRESHOLD) {
+					LockSupport.parkNanos(remaining - PARK_THRESHOLD);
+				}
+			}
+
+			return next;
+		}
+
+		private long nextInterval() {
+			if (distribution == Distribution.FIXED) {
+				return (long) meanInterval;
+			}
+
+			return (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.chatzikalymnios.lfds.LockFreeSet;
+
+/**
+ * Adapts a {@link ConcurrentHashMap#newKeySet() ConcurrentHashMap key set} to
+ * the LockFreeSet interface, so that it can be used as a baseline in the
+ * {@link SetBenchmark}. Note that ConcurrentHashMap locks the bins it updates.
+ */
+public class ConcurrentHashMapSet<E> implements LockFreeSet<E> {
+	private final Set<E> set = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public boolean add(E item) {
+		return set.add(item);
+	}
+
+	@Override
+	public boolean remove(E item) {
+		return set.remove(item);
+	}
+
+	@Override
+	public boolean contains(E item) {
+		return set.contains(item);
+	}
+
+	@Override
+	public void printStats(PrintStream stream) {
+		stream.println(getClass().getSimpleName() + " stats:");
+		stream.println("Size:                  " + set.size());
+	}
+}
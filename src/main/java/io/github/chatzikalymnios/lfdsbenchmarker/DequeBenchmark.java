@@ -0,0 +1,193 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.chatzikalymnios.lfds.LockFreeDeque;
+
+/**
+ * Simulates a work-stealing scheduler. Every thread owns one of the provided
+ * deques. A task is represented by the number of leaf tasks it expands to: a
+ * task larger than one is split in two halves that are pushed onto the owner's
+ * deque, while a leaf task is executed by spinning for <code>workload</code>
+ * microseconds. The run starts with a single root task of <code>numItems</code>
+ * leaves on the first thread's deque, so every other thread has to steal its
+ * work. Owners pop the bottom of their own deque and, once it is empty, steal
+ * the top of a random victim's deque.
+ */
+public class DequeBenchmark implements Benchmark {
+	private static final Logger logger = LoggerFactory.getLogger(DequeBenchmark.class);
+
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+
+	private ExecutorService executorService;
+	private List<LockFreeDeque<Integer>> deques;
+	private int numThreads;
+	private int numItems;
+	private Workload workload;
+
+	/*
+	 * Number of leaf tasks that have not been executed yet.
+	 */
+	private final AtomicInteger remainingTasks = new AtomicInteger(0);
+
+	public DequeBenchmark(List<LockFreeDeque<Integer>> deques, int numItems, Workload workload) {
+		this.executorService = Executors.newFixedThreadPool(deques.size());
+		this.deques = deques;
+		this.numThreads = deques.size();
+		this.numItems = numItems;
+		this.workload = workload;
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		String name = deques.get(0).getClass().getSimpleName();
+		Collection<Callable<WorkerStats>> workers = createWorkers();
+
+		System.out.println("DequeBenchmark [" + name + "] running...");
+
+		long startTime = System.nanoTime();
+
+		List<Future<WorkerStats>> futures = executorService.invokeAll(workers);
+
+		long endTime = System.nanoTime();
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+
+		executorService.shutdown();
+
+		System.out.println("DequeBenchmark [" + name + "] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+
+		long numExecuted = 0;
+		long numStealAttempts = 0;
+		long numSteals = 0;
+
+		for (int i = 0; i < numThreads; i++) {
+			WorkerStats stats = futures.get(i).get();
+			numExecuted += stats.numExecuted;
+			numStealAttempts += stats.numStealAttempts;
+			numSteals += stats.numSteals;
+
+			System.out.println(String.format("Worker %3d: executed %10d leaf tasks, stole %8d / %-10d", i,
+					stats.numExecuted, stats.numSteals, stats.numStealAttempts));
+		}
+
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+		double stealRate = (numStealAttempts == 0) ? 0 : 100.0 * numSteals / numStealAttempts;
+
+		double throughput = numExecuted / seconds;
+		System.out.println(String.format("Throughput:            %.0f leaf tasks/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "leaf tasks/second");
+		System.out.println(String.format("Steal success rate:    %.2f%% (%d / %d)", stealRate, numSteals,
+				numStealAttempts));
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		for (int i = 0; i < numThreads; i++) {
+			if (deques.get(i).popBottom() != null) {
+				System.out.println("\tDeque " + i + " is not empty after test");
+			}
+		}
+
+		if (numExecuted != numItems) {
+			System.out.println("\tSpawned " + numItems + " leaf tasks but executed " + numExecuted + " leaf tasks");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		for (LockFreeDeque<Integer> deque : deques) {
+			deque.printStats(System.out);
+		}
+	}
+
+	private Collection<Callable<WorkerStats>> createWorkers() {
+		Collection<Callable<WorkerStats>> workers = new ArrayList<>();
+
+		remainingTasks.set(numItems);
+
+		for (int i = 0; i < numThreads; i++) {
+			workers.add(new DequeWorker(i, (i == 0 && numItems > 0) ? numItems : 0));
+		}
+
+		return workers;
+	}
+
+	private class WorkerStats {
+		long numExecuted;
+		long numStealAttempts;
+		long numSteals;
+	}
+
+	private class DequeWorker implements Callable<WorkerStats> {
+		private int id;
+		private int rootTask;
+		private Random random;
+
+		DequeWorker(int id, int rootTask) {
+			this.id = id;
+			this.rootTask = rootTask;
+			this.random = new Random(id);
+		}
+
+		@Override
+		public WorkerStats call() throws Exception {
+			Workload.Runner work = workload.newRunner();
+			WorkerStats stats = new WorkerStats();
+			LockFreeDeque<Integer> myDeque = deques.get(id);
+
+			if (rootTask > 0) {
+				myDeque.pushBottom(rootTask);
+			}
+
+			while (remainingTasks.get() > 0) {
+				Integer task = myDeque.popBottom();
+
+				if (task == null && numThreads > 1) {
+					int victim = random.nextInt(numThreads - 1);
+					victim = (victim >= id) ? victim + 1 : victim;
+
+					stats.numStealAttempts++;
+					task = deques.get(victim).steal();
+
+					if (task != null) {
+						stats.numSteals++;
+					}
+				}
+
+				if (task != null) {
+					execute(task, myDeque, stats, work);
+				}
+			}
+
+			return stats;
+		}
+
+		private void execute(int task, LockFreeDeque<Integer> myDeque, WorkerStats stats, Workload.Runner work) {
+			if (task > 1) {
+				// Fork both halves, the owner continues with the last one pushed
+				myDeque.pushBottom(task / 2);
+				myDeque.pushBottom(task - task / 2);
+				return;
+			}
+
+			work.run();
+			stats.numExecuted++;
+			remainingTasks.decrementAndGet();
+		}
+
+	}
+
+}
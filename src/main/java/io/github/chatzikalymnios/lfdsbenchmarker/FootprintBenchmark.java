@@ -0,0 +1,94 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.chatzikalymnios.lfds.LockFreeQueue;
+
+/**
+ * Measures the memory footprint of a queue: the heap retained by the queue
+ * itself per enqueued item, with the queue full.
+ *
+ * The items are allocated before the first measurement and are kept reachable
+ * by the benchmark throughout, so only the nodes, segments and other structures
+ * the queue allocates to hold them are counted, not the items themselves. The
+ * retained heap is measured after several explicit garbage collections, first
+ * with the queue empty, then after enqueuing every item from a single thread,
+ * and finally after dequeuing them all again.
+ */
+public class FootprintBenchmark implements Benchmark {
+	private static final int GC_ROUNDS = 5;
+	private static final int GC_PAUSE = 100; // milliseconds
+
+	private LockFreeQueue<Integer> queue;
+	private int numItems;
+	private List<Integer> items;
+
+	public FootprintBenchmark(LockFreeQueue<Integer> queue, int numItems) {
+		this.queue = queue;
+		this.numItems = numItems;
+		this.items = new ArrayList<>(numItems);
+
+		for (int i = 0; i < numItems; i++) {
+			items.add(i);
+		}
+	}
+
+	@Override
+	public void run() throws InterruptedException {
+		System.out.println("FootprintBenchmark [" + queue.getClass().getSimpleName() + "] running...");
+
+		long emptyHeap = retainedHeap();
+
+		for (Integer item : items) {
+			queue.enqueue(item);
+		}
+
+		long fullHeap = retainedHeap();
+		int numDequeued = 0;
+
+		while (queue.dequeue() != null) {
+			numDequeued++;
+		}
+
+		long drainedHeap = retainedHeap();
+
+		System.out.println("FootprintBenchmark [" + queue.getClass().getSimpleName() + "] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Items:              " + numItems + " (payload excluded)");
+		System.out.println(String.format("Full queue:         %.1f KB retained", (fullHeap - emptyHeap) / 1024.0));
+		System.out.println(String.format("Bytes per element:  %.1f",
+				(numItems == 0) ? 0.0 : (double) (fullHeap - emptyHeap) / numItems));
+		System.out.println(String.format("Drained queue:      %.1f KB retained", (drainedHeap - emptyHeap) / 1024.0));
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		if (numDequeued != numItems) {
+			System.out.println("\tEnqueued " + numItems + " items but dequeued " + numDequeued + " items");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		queue.printStats(System.out);
+	}
+
+	/**
+	 * Returns the smallest amount of used heap observed after each of several
+	 * explicit garbage collections.
+	 */
+	private static long retainedHeap() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+
+		for (int i = 0; i < GC_ROUNDS; i++) {
+			System.gc();
+			Thread.sleep(GC_PAUSE);
+			used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+		}
+
+		return used;
+	}
+}
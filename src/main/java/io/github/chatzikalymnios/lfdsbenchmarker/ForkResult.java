@@ -0,0 +1,139 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.Locale;
+
+/**
+ * The result of a benchmark run in a child JVM, exchanged with the
+ * {@link ForkRunner} as a single machine-readable line, so that the summary
+ * does not depend on the layout of the human-readable report.
+ *
+ * The line starts with <code>RESULT</code>, followed by space-separated
+ * <code>key=value</code> pairs: <code>elapsedMillis</code>,
+ * <code>throughput</code>, <code>unit</code> (with spaces written as
+ * underscores) and, if the benchmark measures garbage collection,
+ * <code>gcCount</code> and <code>gcMillis</code>. Benchmarks only print the line
+ * if the {@link #ENABLED_PROPERTY} system property is set, which the fork
+ * runner does for its children.
+ */
+final class ForkResult {
+	static final String ENABLED_PROPERTY = "lfds.forkResult";
+
+	private static final String PREFIX = "RESULT ";
+
+	final long elapsedMillis;
+	final double throughput;
+	final String unit;
+	final long gcCount; // -1 if not measured
+	final long gcMillis; // -1 if not measured
+
+	private ForkResult(long elapsedMillis, double throughput, String unit, long gcCount, long gcMillis) {
+		this.elapsedMillis = elapsedMillis;
+		this.throughput = throughput;
+		this.unit = unit;
+		this.gcCount = gcCount;
+		this.gcMillis = gcMillis;
+	}
+
+	/**
+	 * Prints the result line of a run to standard output if the run is a fork.
+	 *
+	 * @param elapsedMillis
+	 *            the elapsed time of the run in milliseconds
+	 * @param throughput
+	 *            the throughput of the run
+	 * @param unit
+	 *            the unit of the throughput, e.g. "operations/second"
+	 */
+	static void print(long elapsedMillis, double throughput, String unit) {
+		print(new ForkResult(elapsedMillis, throughput, unit, -1, -1));
+	}
+
+	/**
+	 * Prints the result line of a run, including the garbage collections between
+	 * the provided snapshots, to standard output if the run is a fork.
+	 */
+	static void print(long elapsedMillis, double throughput, String unit, GcStats gcBefore, GcStats gcAfter) {
+		print(new ForkResult(elapsedMillis, throughput, unit, gcAfter.getCount() - gcBefore.getCount(),
+				gcAfter.getTime() - gcBefore.getTime()));
+	}
+
+	private static void print(ForkResult result) {
+		if (Boolean.getBoolean(ENABLED_PROPERTY)) {
+			System.out.println(result);
+		}
+	}
+
+	/**
+	 * Parses a line of a child's output.
+	 *
+	 * @param line
+	 *            the line to parse
+	 * @return the result, or <code>null</code> if the line is not a valid result
+	 *         line
+	 */
+	static ForkResult parse(String line) {
+		if (!line.startsWith(PREFIX)) {
+			return null;
+		}
+
+		Long elapsedMillis = null;
+		Double throughput = null;
+		String unit = "";
+		long gcCount = -1;
+		long gcMillis = -1;
+
+		try {
+			for (String pair : line.substring(PREFIX.length()).trim().split(" +")) {
+				int separator = pair.indexOf('=');
+
+				if (separator < 0) {
+					return null;
+				}
+
+				String key = pair.substring(0, separator);
+				String value = pair.substring(separator + 1);
+
+				switch (key) {
+				case "elapsedMillis":
+					elapsedMillis = Long.parseLong(value);
+					break;
+				case "throughput":
+					throughput = Double.parseDouble(value);
+					break;
+				case "unit":
+					unit = value.replace('_', ' ');
+					break;
+				case "gcCount":
+					gcCount = Long.parseLong(value);
+					break;
+				case "gcMillis":
+					gcMillis = Long.parseLong(value);
+					break;
+				default:
+					// Unknown keys are ignored, so that results can be extended
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		if (elapsedMillis == null || throughput == null) {
+			return null;
+		}
+
+		return new ForkResult(elapsedMillis, throughput, unit, gcCount, gcMillis);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder(PREFIX);
+		line.append(String.format(Locale.ROOT, "elapsedMillis=%d throughput=%.3f unit=%s", elapsedMillis, throughput,
+				unit.replace(' ', '_')));
+
+		if (gcCount >= 0) {
+			line.append(String.format(Locale.ROOT, " gcCount=%d gcMillis=%d", gcCount, gcMillis));
+		}
+
+		return line.toString();
+	}
+}
@@ -0,0 +1,159 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs every trial of a benchmark in a fresh child JVM, so that each trial
+ * starts with clean JIT profiles and an empty heap, instead of inheriting the
+ * state left behind by the previous trials.
+ *
+ * Each child runs {@link App} with the provided arguments and the provided JVM
+ * flags. Its standard output is streamed back and printed as it arrives, while
+ * its standard error is inherited. Each child also reports its elapsed time,
+ * throughput and garbage collection time in a {@link ForkResult} line, which is
+ * not printed; after the last trial, these results are summarized.
+ */
+public class ForkRunner {
+	private static final Logger logger = LoggerFactory.getLogger(ForkRunner.class);
+
+	private int numForks;
+	private List<String> jvmFlags;
+	private List<String> args;
+
+	/**
+	 * Creates a fork runner.
+	 *
+	 * @param numForks
+	 *            the number of trials, each in its own JVM
+	 * @param jvmFlags
+	 *            the flags passed to every child JVM
+	 * @param args
+	 *            the {@link App} arguments of every trial
+	 */
+	public ForkRunner(int numForks, List<String> jvmFlags, List<String> args) {
+		this.numForks = numForks;
+		this.jvmFlags = jvmFlags;
+		this.args = args;
+	}
+
+	public void run() throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmFlags);
+		command.add("-D" + ForkResult.ENABLED_PROPERTY + "=true");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(App.class.getName());
+		command.addAll(args);
+
+		logger.debug("Fork command: " + command);
+
+		List<Long> elapsedTimes = new ArrayList<>();
+		List<Double> throughputs = new ArrayList<>();
+		String throughputUnit = null;
+		List<Long> gcCounts = new ArrayList<>();
+		List<Long> gcTimes = new ArrayList<>();
+		int numFailed = 0;
+
+		for (int fork = 1; fork <= numForks; fork++) {
+			System.out.println("Fork " + fork + "/" + numForks + " running...");
+
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+			Process process = builder.start();
+			process.getOutputStream().close();
+
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					ForkResult result = ForkResult.parse(line);
+
+					if (result == null) {
+						System.out.println(line);
+						continue;
+					}
+
+					elapsedTimes.add(result.elapsedMillis);
+					throughputs.add(result.throughput);
+					throughputUnit = result.unit;
+
+					if (result.gcCount >= 0) {
+						gcCounts.add(result.gcCount);
+						gcTimes.add(result.gcMillis);
+					}
+				}
+			}
+
+			int status = process.waitFor();
+
+			if (status != 0) {
+				System.out.println("Fork " + fork + "/" + numForks + " exited with status " + status);
+				numFailed++;
+			}
+		}
+
+		System.out.println("===================================================");
+		System.out.println("Forks: " + numForks + " (" + numFailed + " failed)");
+		System.out.println("JVM flags: " + (jvmFlags.isEmpty() ? "none" : String.join(" ", jvmFlags)));
+
+		if (!elapsedTimes.isEmpty()) {
+			long min = Long.MAX_VALUE;
+			long max = 0;
+			double sum = 0;
+
+			for (long elapsedTime : elapsedTimes) {
+				min = Math.min(min, elapsedTime);
+				max = Math.max(max, elapsedTime);
+				sum += elapsedTime;
+			}
+
+			System.out.println(String.format("Elapsed time: mean %.1f, min %d, max %d milliseconds",
+					sum / elapsedTimes.size(), min, max));
+		}
+
+		if (!throughputs.isEmpty()) {
+			double min = Double.MAX_VALUE;
+			double max = 0;
+			double sum = 0;
+			double sumOfSquares = 0;
+
+			for (double throughput : throughputs) {
+				min = Math.min(min, throughput);
+				max = Math.max(max, throughput);
+				sum += throughput;
+				sumOfSquares += throughput * throughput;
+			}
+
+			double mean = sum / throughputs.size();
+			double stddev = Math.sqrt(Math.max(sumOfSquares / throughputs.size() - mean * mean, 0));
+
+			System.out.println(String.format("Throughput:   mean %.0f, stddev %.0f, min %.0f, max %.0f %s", mean,
+					stddev, min, max, throughputUnit));
+		}
+
+		if (!gcTimes.isEmpty()) {
+			long maxTime = 0;
+			double sumOfCounts = 0;
+			double sumOfTimes = 0;
+
+			for (int i = 0; i < gcTimes.size(); i++) {
+				maxTime = Math.max(maxTime, gcTimes.get(i));
+				sumOfCounts += gcCounts.get(i);
+				sumOfTimes += gcTimes.get(i);
+			}
+
+			System.out.println(String.format("GC:           mean %.1f collections, mean %.1f, max %d milliseconds",
+					sumOfCounts / gcTimes.size(), sumOfTimes / gcTimes.size(), maxTime));
+		}
+	}
+}
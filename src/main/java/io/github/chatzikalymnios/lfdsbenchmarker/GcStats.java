@@ -0,0 +1,60 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * A snapshot of the number of garbage collections and the accumulated time
+ * spent in them, summed over all collectors of the JVM. The difference of two
+ * snapshots approximates the garbage collection pause time of a run.
+ */
+public class GcStats {
+	private final long count;
+	private final long time; // milliseconds
+
+	private GcStats(long count, long time) {
+		this.count = count;
+		this.time = time;
+	}
+
+	/**
+	 * Takes a snapshot of the garbage collection counters.
+	 *
+	 * @return the snapshot
+	 */
+	public static GcStats snapshot() {
+		long count = 0;
+		long time = 0;
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			// Undefined values are reported as -1
+			count += Math.max(collector.getCollectionCount(), 0);
+			time += Math.max(collector.getCollectionTime(), 0);
+		}
+
+		return new GcStats(count, time);
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	long getTime() {
+		return time;
+	}
+
+	/**
+	 * Prints the collections since the provided snapshot was taken to the
+	 * specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print the collections to
+	 * @param before
+	 *            the snapshot taken at the start of the run
+	 */
+	public void printSince(PrintStream stream, GcStats before) {
+		stream.println(String.format("GC:           %d collections, %d milliseconds", count - before.count,
+				time - before.time));
+	}
+}
@@ -0,0 +1,194 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A journal of every operation of a benchmark, written to a memory-mapped file
+ * for offline analysis with {@link JournalAnalyzer}.
+ *
+ * The file starts with a header, followed by one region of fixed-width records
+ * per thread. Every thread writes its records through its own {@link Writer}
+ * into the {@link MappedByteBuffer} of its region, so recording an operation
+ * neither allocates nor synchronizes. The pages of the regions are touched when
+ * the journal is created, so that the page faults happen before the benchmark
+ * starts. A writer whose region is full drops further records and counts them.
+ *
+ * The header holds the magic number, the format version, the number of regions
+ * and the capacity of every region, followed by the number of records written
+ * and dropped in every region, which are filled in by {@link #close()}. Every
+ * record holds the thread, the operation, its start and end time in
+ * nanoseconds, and its result: the inserted or removed item, or
+ * {@link #EMPTY} for a remove that found the data structure empty.
+ */
+public class Journal implements Closeable {
+	static final int MAGIC = 0x4C46444A; // "LFDJ"
+	static final int VERSION = 1;
+	static final int RECORD_SIZE = 32;
+	static final int HEADER_SIZE = 16; // excluding the per-region counts
+	static final int REGION_COUNTS_SIZE = 8;
+
+	/**
+	 * The result of a remove that found the data structure empty.
+	 */
+	public static final int EMPTY = -1;
+
+	private static final int PAGE_SIZE = 4096;
+
+	/**
+	 * Operations recorded in a journal.
+	 */
+	public static enum Op {
+		PUSH, POP, ENQUEUE, DEQUEUE
+	};
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final Writer[] writers;
+
+	/**
+	 * Creates a journal file, overwriting any existing file.
+	 *
+	 * @param file
+	 *            the journal file
+	 * @param numThreads
+	 *            the number of threads, i.e. regions
+	 * @param recordsPerThread
+	 *            the number of records every region has room for
+	 * @throws IOException
+	 *             if the file could not be created or mapped
+	 */
+	public Journal(File file, int numThreads, int recordsPerThread) throws IOException {
+		if ((long) recordsPerThread * RECORD_SIZE > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Journal region too large: " + recordsPerThread + " records");
+		}
+
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+		this.writers = new Writer[numThreads];
+
+		int regionSize = recordsPerThread * RECORD_SIZE;
+		long dataOffset = dataOffset(numThreads);
+
+		raf.setLength(0);
+		raf.setLength(dataOffset + (long) numThreads * regionSize);
+		raf.writeInt(MAGIC);
+		raf.writeInt(VERSION);
+		raf.writeInt(numThreads);
+		raf.writeInt(recordsPerThread);
+
+		for (int i = 0; i < numThreads; i++) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + (long) i * regionSize,
+					regionSize);
+
+			for (int pos = 0; pos < regionSize; pos += PAGE_SIZE) {
+				buffer.put(pos, (byte) 0);
+			}
+
+			writers[i] = new Writer(buffer, i);
+		}
+	}
+
+	static long dataOffset(int numThreads) {
+		return HEADER_SIZE + (long) numThreads * REGION_COUNTS_SIZE;
+	}
+
+	/**
+	 * Returns the writer of the provided thread, which must only be used by that
+	 * thread.
+	 */
+	public Writer writer(int thread) {
+		return writers[thread];
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getNumRecords() {
+		long records = 0;
+
+		for (Writer writer : writers) {
+			records += writer.count;
+		}
+
+		return records;
+	}
+
+	public long getNumDropped() {
+		long dropped = 0;
+
+		for (Writer writer : writers) {
+			dropped += writer.dropped;
+		}
+
+		return dropped;
+	}
+
+	/**
+	 * Writes the number of records of every region to the header, flushes the
+	 * regions to the file and closes it. Must be called after every writer is
+	 * done.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.seek(HEADER_SIZE);
+
+		for (Writer writer : writers) {
+			raf.writeInt(writer.count);
+			raf.writeInt(writer.dropped);
+			writer.buffer.force();
+		}
+
+		channel.close();
+		raf.close();
+	}
+
+	/**
+	 * Writes the records of a single thread. A Writer is not thread-safe.
+	 */
+	public static final class Writer {
+		private final MappedByteBuffer buffer;
+		private final int thread;
+		private int count;
+		private int dropped;
+
+		private Writer(MappedByteBuffer buffer, int thread) {
+			this.buffer = buffer;
+			this.thread = thread;
+		}
+
+		/**
+		 * Records a single operation.
+		 *
+		 * @param op
+		 *            the operation
+		 * @param start
+		 *            the start time of the operation in nanoseconds
+		 * @param end
+		 *            the end time of the operation in nanoseconds
+		 * @param result
+		 *            the inserted or removed item, or {@link Journal#EMPTY}
+		 */
+		public void record(Op op, long start, long end, int result) {
+			if (buffer.remaining() < RECORD_SIZE) {
+				dropped++;
+				return;
+			}
+
+			buffer.putInt(thread);
+			buffer.putInt(op.ordinal());
+			buffer.putLong(start);
+			buffer.putLong(end);
+			buffer.putInt(result);
+			buffer.putInt(0); // padding
+			count++;
+		}
+	}
+}
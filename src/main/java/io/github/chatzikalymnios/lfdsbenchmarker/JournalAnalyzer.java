@@ -0,0 +1,247 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Analyzes a {@link Journal} file after a run.
+ *
+ * The report includes the latency percentiles and a histogram of the latencies
+ * of every recorded operation, a timeline of the throughput and of the removes
+ * that found the data structure empty, and a breakdown of the operations and
+ * latencies of every thread.
+ */
+public class JournalAnalyzer {
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+	private static final int DEFAULT_NUM_INTERVALS = 20;
+	private static final int MAX_NUM_INTERVALS = 10000;
+	private static final int NUM_BUCKETS = 64; // powers of two
+
+	private final File file;
+	private final long interval; // milliseconds, 0 to split the run evenly
+
+	private int numThreads;
+	private long numRecords;
+	private long numDropped;
+	private long firstStart = Long.MAX_VALUE;
+	private long lastEnd = Long.MIN_VALUE;
+
+	private final int numOps = Journal.Op.values().length;
+	private LatencyRecorder[] opLatencies;
+	private long[][] histograms;
+	private long[][] threadOps;
+	private long[] threadEmpty;
+	private LatencyRecorder[] threadLatencies;
+
+	/**
+	 * Creates a journal analyzer.
+	 *
+	 * @param file
+	 *            the journal file
+	 * @param interval
+	 *            the length of the timeline intervals in milliseconds, or 0 to
+	 *            split the run into 20 intervals; longer intervals are used if
+	 *            the run would otherwise have more than 10000 intervals
+	 */
+	public JournalAnalyzer(File file, long interval) {
+		this.file = file;
+		this.interval = interval;
+	}
+
+	/**
+	 * Reads the journal and prints the report to the specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print the report to
+	 * @throws IOException
+	 *             if the journal could not be read or is not a journal
+	 */
+	public void run(PrintStream stream) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (raf.length() < Journal.HEADER_SIZE || raf.readInt() != Journal.MAGIC) {
+				throw new IOException("Not a journal: " + file);
+			}
+
+			int version = raf.readInt();
+
+			if (version != Journal.VERSION) {
+				throw new IOException("Unsupported journal version " + version + ": " + file);
+			}
+
+			numThreads = raf.readInt();
+			int recordsPerThread = raf.readInt();
+			int[] counts = new int[numThreads];
+
+			for (int i = 0; i < numThreads; i++) {
+				counts[i] = raf.readInt();
+				numDropped += raf.readInt();
+				numRecords += counts[i];
+			}
+
+			MappedByteBuffer[] regions = new MappedByteBuffer[numThreads];
+			long regionSize = (long) recordsPerThread * Journal.RECORD_SIZE;
+
+			for (int i = 0; i < numThreads; i++) {
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						Journal.dataOffset(numThreads) + i * regionSize, (long) counts[i] * Journal.RECORD_SIZE);
+			}
+
+			summarize(regions);
+
+			stream.println("Journal: " + file + ", " + numThreads + " threads, " + numRecords + " records ("
+					+ numDropped + " dropped)");
+
+			if (numRecords == 0) {
+				return;
+			}
+
+			stream.println("Duration: " + (lastEnd - firstStart) / NANO_IN_MILLISECONDS + " milliseconds");
+			stream.println("---------------------------------------------------");
+			printLatencies(stream);
+			stream.println("---------------------------------------------------");
+			printTimeline(stream, regions);
+			stream.println("---------------------------------------------------");
+			printThreads(stream);
+		}
+	}
+
+	/**
+	 * Collects the latencies and operation counts in a single pass over the
+	 * records.
+	 */
+	private void summarize(MappedByteBuffer[] regions) {
+		opLatencies = new LatencyRecorder[numOps];
+		histograms = new long[numOps][NUM_BUCKETS];
+		threadOps = new long[numThreads][numOps];
+		threadEmpty = new long[numThreads];
+		threadLatencies = new LatencyRecorder[numThreads];
+
+		for (int op = 0; op < numOps; op++) {
+			opLatencies[op] = new LatencyRecorder();
+		}
+
+		for (int i = 0; i < numThreads; i++) {
+			MappedByteBuffer region = regions[i];
+			threadLatencies[i] = new LatencyRecorder(region.capacity() / Journal.RECORD_SIZE);
+
+			for (int pos = 0; pos < region.capacity(); pos += Journal.RECORD_SIZE) {
+				int op = region.getInt(pos + 4);
+				long start = region.getLong(pos + 8);
+				long end = region.getLong(pos + 16);
+				int result = region.getInt(pos + 24);
+				long latency = Math.max(end - start, 0);
+
+				firstStart = Math.min(firstStart, start);
+				lastEnd = Math.max(lastEnd, end);
+
+				opLatencies[op].record(latency);
+				histograms[op][bucket(latency)]++;
+				threadOps[i][op]++;
+				threadLatencies[i].record(latency);
+
+				if (result == Journal.EMPTY) {
+					threadEmpty[i]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the histogram bucket of a latency: bucket <code>b</code> holds the
+	 * latencies in <code>[2^(b-1), 2^b)</code> nanoseconds.
+	 */
+	private static int bucket(long latency) {
+		return Math.min(64 - Long.numberOfLeadingZeros(latency), NUM_BUCKETS - 1);
+	}
+
+	private void printLatencies(PrintStream stream) {
+		for (Journal.Op op : Journal.Op.values()) {
+			LatencyRecorder latencies = opLatencies[op.ordinal()];
+
+			if (latencies.getCount() == 0) {
+				continue;
+			}
+
+			latencies.printPercentiles(stream, label(op));
+
+			long[] histogram = histograms[op.ordinal()];
+
+			for (int b = 0; b < NUM_BUCKETS; b++) {
+				if (histogram[b] > 0) {
+					long low = (b == 0) ? 0 : 1L << (b - 1);
+					stream.println(String.format("  [%10.3f, %10.3f) us %10d %6.2f%%", low / 1e3, (1L << b) / 1e3,
+							histogram[b], 100.0 * histogram[b] / latencies.getCount()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the throughput and the empty removes of every interval, counting
+	 * every operation in the interval it ended in. If the requested intervals are
+	 * too short for the run to fit in <code>MAX_NUM_INTERVALS</code> intervals,
+	 * the intervals are made longer.
+	 */
+	private void printTimeline(PrintStream stream, MappedByteBuffer[] regions) {
+		// The end times range from firstStart to lastEnd, both included
+		long duration = Math.max(lastEnd - firstStart + 1, 1);
+		long length = (interval > 0) ? interval * NANO_IN_MILLISECONDS
+				: Math.max(duration / DEFAULT_NUM_INTERVALS, 1);
+		length = Math.max(length, (duration - 1) / MAX_NUM_INTERVALS + 1);
+		int numIntervals = (int) ((duration - 1) / length + 1);
+		long[] ops = new long[numIntervals];
+		long[] empty = new long[numIntervals];
+
+		for (MappedByteBuffer region : regions) {
+			for (int pos = 0; pos < region.capacity(); pos += Journal.RECORD_SIZE) {
+				long end = region.getLong(pos + 16);
+				int i = (int) ((end - firstStart) / length);
+
+				ops[i]++;
+
+				if (region.getInt(pos + 24) == Journal.EMPTY) {
+					empty[i]++;
+				}
+			}
+		}
+
+		boolean lengthened = (interval > 0) && (length > interval * NANO_IN_MILLISECONDS);
+		stream.println(String.format("Timeline (%.3f ms intervals%s):", length / 1e6,
+				lengthened ? ", lengthened to at most " + MAX_NUM_INTERVALS + " intervals" : ""));
+
+		for (int i = 0; i < numIntervals; i++) {
+			stream.println(String.format("  %10.3f ms: %12.0f operations/second, %d empty removes",
+					i * length / 1e6, ops[i] * 1e9 / length, empty[i]));
+		}
+	}
+
+	private void printThreads(PrintStream stream) {
+		stream.println("Per thread:");
+
+		for (int i = 0; i < numThreads; i++) {
+			StringBuilder line = new StringBuilder(String.format("  Thread %3d:", i));
+
+			for (Journal.Op op : Journal.Op.values()) {
+				if (threadOps[i][op.ordinal()] > 0) {
+					line.append(" " + label(op).toLowerCase() + " " + threadOps[i][op.ordinal()] + ",");
+				}
+			}
+
+			LatencyRecorder latencies = threadLatencies[i];
+
+			line.append(String.format(" %d empty, latency (us): p50 = %.1f, p99 = %.1f, max = %.1f", threadEmpty[i],
+					latencies.getPercentile(0.5) / 1e3, latencies.getPercentile(0.99) / 1e3,
+					latencies.getMax() / 1e3));
+			stream.println(line);
+		}
+	}
+
+	private static String label(Journal.Op op) {
+		String name = op.toString();
+		return name.charAt(0) + name.substring(1).toLowerCase();
+	}
+}
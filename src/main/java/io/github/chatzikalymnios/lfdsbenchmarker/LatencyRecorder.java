@@ -0,0 +1,119 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Records operation latencies in nanoseconds and reports their percentiles.
+ *
+ * A LatencyRecorder is not thread-safe: each worker records into its own
+ * instance, and the instances are {@link #merge(Collection) merged} after the
+ * run. Every sample is kept, so the percentiles are exact.
+ */
+public class LatencyRecorder {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long[] samples;
+	private int count;
+	private boolean sorted;
+
+	public LatencyRecorder() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a LatencyRecorder with room for the specified number of samples
+	 * before it has to grow.
+	 *
+	 * @param capacity
+	 *            the expected number of samples
+	 */
+	public LatencyRecorder(int capacity) {
+		this.samples = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Records a single latency.
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, 2 * samples.length);
+		}
+
+		samples[count++] = nanos;
+		sorted = false;
+	}
+
+	/**
+	 * Merges the samples of the provided recorders into a new recorder.
+	 *
+	 * @param recorders
+	 *            the recorders to merge
+	 * @return a recorder holding every sample of the provided recorders
+	 */
+	public static LatencyRecorder merge(Collection<LatencyRecorder> recorders) {
+		int total = 0;
+
+		for (LatencyRecorder recorder : recorders) {
+			total += recorder.count;
+		}
+
+		LatencyRecorder result = new LatencyRecorder(total);
+
+		for (LatencyRecorder recorder : recorders) {
+			System.arraycopy(recorder.samples, 0, result.samples, result.count, recorder.count);
+			result.count += recorder.count;
+		}
+
+		return result;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the smallest recorded latency that is at least as large as the
+	 * specified fraction of all samples, or 0 if nothing was recorded.
+	 *
+	 * @param fraction
+	 *            the percentile as a fraction in <code>[0, 1]</code>
+	 * @return the latency in nanoseconds
+	 */
+	public long getPercentile(double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+
+		if (!sorted) {
+			Arrays.sort(samples, 0, count);
+			sorted = true;
+		}
+
+		int index = (int) Math.ceil(fraction * count) - 1;
+		return samples[Math.min(Math.max(index, 0), count - 1)];
+	}
+
+	public long getMax() {
+		return getPercentile(1.0);
+	}
+
+	/**
+	 * Prints the median, p99, p99.9 and maximum latency in microseconds to the
+	 * specified stream.
+	 *
+	 * @param stream
+	 *            PrintStream to print the percentiles to
+	 * @param label
+	 *            the name of the recorded operation
+	 */
+	public void printPercentiles(PrintStream stream, String label) {
+		stream.println(String.format("%-10s latency (us): p50 = %.1f, p99 = %.1f, p99.9 = %.1f, max = %.1f (%d samples)",
+				label, getPercentile(0.5) / 1e3, getPercentile(0.99) / 1e3, getPercentile(0.999) / 1e3,
+				getMax() / 1e3, count));
+	}
+}
@@ -0,0 +1,20 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+/**
+ * An element of a stack or queue benchmark: the id of the item, which the
+ * benchmark uses to check for lost or duplicate items, and optional data that
+ * gives the element a realistic size.
+ */
+public final class Payload {
+	final Integer id;
+	final long[] data;
+
+	Payload(Integer id, long[] data) {
+		this.id = id;
+		this.data = data;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+}
@@ -0,0 +1,151 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.List;
+
+/**
+ * Creates and consumes the elements of a benchmark.
+ *
+ * Every element is a {@link Payload} that carries <code>size</code> bytes of
+ * data, rounded up to whole longs, in addition to the object headers. Payloads
+ * are either allocated before the benchmark starts, or allocated fresh right
+ * before they are inserted, which adds allocation and garbage collection work to
+ * every operation. When a payload is removed, the consumer either ignores its
+ * data, reads every word of it, or writes every word of it.
+ *
+ * A size of 0 without fresh allocation leaves nothing for a payload to add, so
+ * the elements are then the plain <code>Integer</code> items, exactly as in a
+ * benchmark without payloads.
+ */
+public class PayloadFactory {
+	private static final int BYTES_IN_LONG = 8;
+
+	/**
+	 * How consumers access the data of a removed payload.
+	 */
+	public static enum Access {
+		NONE, READ, WRITE
+	};
+
+	/*
+	 * Written only if a sum holds an (unlikely) magic value, so that the reads
+	 * cannot be removed as dead code.
+	 */
+	static volatile long blackhole;
+
+	private final int size;
+	private final boolean fresh;
+	private final Access access;
+	private final boolean plain;
+	private Payload[] preallocated;
+
+	/**
+	 * Creates a payload factory.
+	 *
+	 * @param size
+	 *            the number of data bytes of every payload
+	 * @param fresh
+	 *            whether to allocate every payload right before it is inserted
+	 * @param access
+	 *            how consumers access the data of removed payloads
+	 */
+	public PayloadFactory(int size, boolean fresh, Access access) {
+		this.size = size;
+		this.fresh = fresh;
+		this.access = access;
+		this.plain = (size == 0) && !fresh;
+	}
+
+	/**
+	 * Prepares the payloads of the provided items, allocating them unless they
+	 * are allocated fresh or the items are used as they are. Must be called
+	 * before {@link #get(Integer)}.
+	 *
+	 * @param items
+	 *            the items, numbered from 0 to <code>items.size() - 1</code>
+	 */
+	void prepare(List<Integer> items) {
+		if (fresh || plain) {
+			return;
+		}
+
+		preallocated = new Payload[items.size()];
+
+		for (Integer item : items) {
+			preallocated[item] = create(item);
+		}
+	}
+
+	/**
+	 * Returns the element of the provided item: the item itself, or its payload,
+	 * allocated if payloads are allocated fresh.
+	 */
+	Object get(Integer item) {
+		if (plain) {
+			return item;
+		}
+
+		return fresh ? create(item) : preallocated[item];
+	}
+
+	private Payload create(Integer item) {
+		return new Payload(item, (size == 0) ? null : new long[(size + BYTES_IN_LONG - 1) / BYTES_IN_LONG]);
+	}
+
+	/**
+	 * Accesses the data of a removed element and returns its item.
+	 *
+	 * @param element
+	 *            the removed element, or <code>null</code>
+	 * @return the item of the element, or <code>null</code> if the element was
+	 *         <code>null</code>
+	 */
+	Integer consume(Object element) {
+		if (element == null || plain) {
+			return (Integer) element;
+		}
+
+		long[] data = ((Payload) element).data;
+
+		if (data != null) {
+			if (access == Access.READ) {
+				long sum = 0;
+
+				for (int i = 0; i < data.length; i++) {
+					sum += data[i];
+				}
+
+				if (sum == 0x5DEECE66DL) {
+					blackhole = sum;
+				}
+			} else if (access == Access.WRITE) {
+				for (int i = 0; i < data.length; i++) {
+					data[i]++;
+				}
+			}
+		}
+
+		return itemOf(element);
+	}
+
+	/**
+	 * Returns the item of a removed element without accessing its data, or
+	 * <code>null</code> if the element is <code>null</code>.
+	 */
+	Integer itemOf(Object element) {
+		if (element == null || plain) {
+			return (Integer) element;
+		}
+
+		return ((Payload) element).id;
+	}
+
+	@Override
+	public String toString() {
+		if (plain) {
+			return "none (plain items)";
+		}
+
+		return size + " bytes, " + (fresh ? "allocated per operation" : "pre-allocated") + ", consumer access "
+				+ access.toString().toLowerCase();
+	}
+}
@@ -0,0 +1,336 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.github.chatzikalymnios.lfds.LockFreeQueue;
+
+/**
+ * Benchmarks a chain of thread stages connected by queues, one queue per hop.
+ *
+ * The threads of the first stage split the items among themselves, and run
+ * their stage's workload for every item before enqueuing it in the first
+ * queue. The threads of every later stage dequeue items from the queue before
+ * them, run their stage's workload, and enqueue the items in the queue after
+ * them; the last stage consumes the items. Contention at one hop slows down the
+ * stages around it, so the pipeline shows how delays cascade between queues.
+ *
+ * The report includes the end-to-end latency of the items, from the moment the
+ * first stage started processing them to the moment the last stage consumed
+ * them, the throughput of every stage, and the backlog of every queue, sampled
+ * while the benchmark runs.
+ */
+public class PipelineBenchmark implements Benchmark {
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+	private static final int BACKLOG_INTERVAL = 1; // milliseconds
+
+	/**
+	 * A stage of the pipeline: a number of threads running the same workload
+	 * for every item.
+	 */
+	public static class Stage {
+		private final int numThreads;
+		private final Workload workload;
+
+		public Stage(int numThreads, Workload workload) {
+			this.numThreads = numThreads;
+			this.workload = workload;
+		}
+
+		public int getNumThreads() {
+			return numThreads;
+		}
+
+		public Workload getWorkload() {
+			return workload;
+		}
+	}
+
+	private ExecutorService executorService;
+	private List<Stage> stages;
+	private List<LockFreeQueue<Integer>> queues;
+	private int numItems;
+
+	/*
+	 * Number of items each stage has completed, i.e. passed on to the next queue
+	 * or consumed.
+	 */
+	private final AtomicInteger[] completed;
+
+	/*
+	 * Time the last thread of each stage finished.
+	 */
+	private final AtomicLongArray stageEndTimes;
+
+	/*
+	 * Time the first stage started processing each item.
+	 */
+	private final long[] startTimes;
+
+	private final List<LatencyRecorder> latencies = new ArrayList<>();
+
+	/**
+	 * Creates a pipeline benchmark.
+	 *
+	 * @param stages
+	 *            the stages of the pipeline, at least two
+	 * @param queues
+	 *            the queues between consecutive stages, one fewer than the
+	 *            stages
+	 * @param numItems
+	 *            the number of items to pass through the pipeline
+	 */
+	public PipelineBenchmark(List<Stage> stages, List<LockFreeQueue<Integer>> queues, int numItems) {
+		if (stages.size() < 2 || queues.size() != stages.size() - 1) {
+			throw new IllegalArgumentException("A pipeline needs at least two stages and one queue per hop");
+		}
+
+		int numThreads = 0;
+
+		for (Stage stage : stages) {
+			numThreads += stage.getNumThreads();
+		}
+
+		this.executorService = Executors.newFixedThreadPool(numThreads);
+		this.stages = stages;
+		this.queues = queues;
+		this.numItems = numItems;
+		this.completed = new AtomicInteger[stages.size()];
+		this.stageEndTimes = new AtomicLongArray(stages.size());
+		this.startTimes = new long[numItems];
+
+		for (int i = 0; i < stages.size(); i++) {
+			completed[i] = new AtomicInteger(0);
+		}
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		Collection<Callable<List<Integer>>> workers = createWorkers();
+		String queueName = queues.get(0).getClass().getSimpleName();
+
+		System.out.println("PipelineBenchmark [" + queueName + ", " + stages.size() + " stages] running...");
+
+		long[] maxBacklogs = new long[queues.size()];
+		double[] backlogSums = new double[queues.size()];
+		int numSamples = 0;
+
+		long startTime = System.nanoTime();
+
+		List<Future<List<Integer>>> futures = new ArrayList<>();
+
+		for (Callable<List<Integer>> worker : workers) {
+			futures.add(executorService.submit(worker));
+		}
+
+		while (!isDone(futures)) {
+			for (int hop = 0; hop < queues.size(); hop++) {
+				long backlog = completed[hop].get() - completed[hop + 1].get();
+				maxBacklogs[hop] = Math.max(maxBacklogs[hop], backlog);
+				backlogSums[hop] += backlog;
+			}
+
+			numSamples++;
+			Thread.sleep(BACKLOG_INTERVAL);
+		}
+
+		long endTime = System.nanoTime();
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+
+		executorService.shutdown();
+
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+
+		System.out.println("PipelineBenchmark [" + queueName + ", " + stages.size() + " stages] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = numItems / seconds;
+		System.out.println(String.format("Throughput:   %.0f items/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "items/second");
+		LatencyRecorder.merge(latencies).printPercentiles(System.out, "End-to-end");
+
+		for (int i = 0; i < stages.size(); i++) {
+			Stage stage = stages.get(i);
+			double stageSeconds = Math.max(stageEndTimes.get(i) - startTime, 1) / 1e9;
+
+			System.out.println(String.format("Stage %d: %d threads, %.0f items/second, workload: %s", i,
+					stage.getNumThreads(), numItems / stageSeconds, stage.getWorkload()));
+		}
+
+		for (int hop = 0; hop < queues.size(); hop++) {
+			System.out.println(String.format("Queue %d: backlog mean %.1f, max %d items", hop,
+					(numSamples == 0) ? 0.0 : backlogSums[hop] / numSamples, maxBacklogs[hop]));
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		for (int hop = 0; hop < queues.size(); hop++) {
+			if (queues.get(hop).dequeue() != null) {
+				System.out.println("\tQueue " + hop + " is not empty after test");
+			}
+		}
+
+		List<Integer> consumedItems = gatherConsumedItems(futures);
+
+		if (consumedItems.size() != numItems) {
+			System.out.println("\tProduced " + numItems + " items but consumed " + consumedItems.size() + " items");
+		}
+
+		if (hasDuplicates(consumedItems)) {
+			System.out.println("\tDuplicate element(s) were consumed from the pipeline");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		for (int hop = 0; hop < queues.size(); hop++) {
+			System.out.println("Queue " + hop + ":");
+			queues.get(hop).printStats(System.out);
+		}
+	}
+
+	private Collection<Callable<List<Integer>>> createWorkers() {
+		Collection<Callable<List<Integer>>> workers = new ArrayList<>();
+
+		int numSources = stages.get(0).getNumThreads();
+		int itemsPerSource = numItems / numSources;
+
+		for (int i = 0; i < numSources; i++) {
+			int from = i * itemsPerSource;
+			int to = (i == numSources - 1) ? numItems : from + itemsPerSource;
+			workers.add(new SourceWorker(from, to));
+		}
+
+		for (int stage = 1; stage < stages.size(); stage++) {
+			for (int i = 0; i < stages.get(stage).getNumThreads(); i++) {
+				workers.add(new StageWorker(stage));
+			}
+		}
+
+		return workers;
+	}
+
+	private boolean isDone(List<Future<List<Integer>>> futures) {
+		for (Future<List<Integer>> future : futures) {
+			if (!future.isDone()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private List<Integer> gatherConsumedItems(List<Future<List<Integer>>> futures)
+			throws InterruptedException, ExecutionException {
+		List<Integer> consumedItems = new ArrayList<>();
+
+		for (Future<List<Integer>> future : futures) {
+			consumedItems.addAll(future.get());
+		}
+
+		return consumedItems;
+	}
+
+	private boolean hasDuplicates(List<Integer> items) {
+		Set<Integer> set = new HashSet<>();
+		set.addAll(items);
+		return set.size() < items.size();
+	}
+
+	/**
+	 * Records the time the calling thread of the provided stage finished, keeping
+	 * the latest one.
+	 */
+	private void finish(int stage) {
+		long now = System.nanoTime();
+		long end;
+
+		while ((end = stageEndTimes.get(stage)) < now && !stageEndTimes.compareAndSet(stage, end, now)) {
+		}
+	}
+
+	private class SourceWorker implements Callable<List<Integer>> {
+		private int from;
+		private int to;
+
+		SourceWorker(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			Workload.Runner work = stages.get(0).getWorkload().newRunner();
+			LockFreeQueue<Integer> out = queues.get(0);
+
+			for (int item = from; item < to; item++) {
+				startTimes[item] = System.nanoTime();
+				work.run();
+				out.enqueue(item);
+				completed[0].incrementAndGet();
+			}
+
+			finish(0);
+
+			return new ArrayList<>();
+		}
+
+	}
+
+	private class StageWorker implements Callable<List<Integer>> {
+		private int stage;
+		private LatencyRecorder latency;
+
+		StageWorker(int stage) {
+			this.stage = stage;
+
+			if (stage == stages.size() - 1) {
+				this.latency = new LatencyRecorder(numItems / stages.get(stage).getNumThreads() + 1);
+				latencies.add(latency);
+			}
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			Workload.Runner work = stages.get(stage).getWorkload().newRunner();
+			List<Integer> consumed = new ArrayList<>();
+			LockFreeQueue<Integer> in = queues.get(stage - 1);
+			LockFreeQueue<Integer> out = (latency == null) ? queues.get(stage) : null;
+
+			while (completed[stage].get() < numItems) {
+				Integer item = in.dequeue();
+
+				if (item == null) {
+					continue;
+				}
+
+				work.run();
+
+				if (out != null) {
+					out.enqueue(item);
+				} else {
+					latency.record(System.nanoTime() - startTimes[item]);
+					consumed.add(item);
+				}
+
+				completed[stage].incrementAndGet();
+			}
+
+			finish(stage);
+
+			return consumed;
+		}
+
+	}
+}
@@ -0,0 +1,210 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.chatzikalymnios.lfds.LockFreePriorityQueue;
+
+/**
+ * Benchmarks a priority queue under a mixed insert/deleteMin workload. Half of
+ * the items are inserted before the run. During the run, every thread randomly
+ * alternates between inserting its share of the remaining items and deleting
+ * the minimum, and then keeps deleting until the priority queue has been
+ * drained. Besides the throughput, the benchmark reports the rank error of the
+ * deleteMin operations.
+ */
+public class PriorityQueueBenchmark implements Benchmark {
+	private static final Logger logger = LoggerFactory.getLogger(PriorityQueueBenchmark.class);
+
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+
+	private ExecutorService executorService;
+	private LockFreePriorityQueue<Integer> pq;
+	private int numThreads;
+	private int numItems;
+	private Workload workload;
+	private List<Integer> items;
+
+	/*
+	 * Start times of the insertions and completion times of the removals of each
+	 * item, used to compute the rank error. Each entry is written by a single
+	 * thread.
+	 */
+	private long[] insertTimes;
+	private long[] removeTimes;
+
+	private final AtomicInteger numDeleted = new AtomicInteger(0);
+
+	public PriorityQueueBenchmark(LockFreePriorityQueue<Integer> pq, int numThreads, int numItems, Workload workload) {
+		this.executorService = Executors.newFixedThreadPool(numThreads);
+		this.pq = pq;
+		this.numThreads = numThreads;
+		this.numItems = numItems;
+		this.workload = workload;
+
+		this.items = createItems(numItems);
+		this.insertTimes = new long[numItems];
+		this.removeTimes = new long[numItems];
+		Arrays.fill(removeTimes, Long.MAX_VALUE);
+	}
+
+	private List<Integer> createItems(int numItems) {
+		Random random = new Random(0);
+		List<Integer> items = new ArrayList<>(numItems);
+
+		// Fill list (no duplicates)
+		for (int i = 0; i < numItems; i++) {
+			items.add(i);
+		}
+
+		// Shuffle list
+		for (int i = 0; i < numItems; i++) {
+			int pos = random.nextInt(numItems);
+			int temp = items.get(i);
+			items.set(i, items.get(pos));
+			items.set(pos, temp);
+		}
+
+		return items;
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		int numPrefilled = numItems / 2;
+
+		for (Integer item : items.subList(0, numPrefilled)) {
+			insertTimes[item] = System.nanoTime();
+			pq.insert(item);
+		}
+
+		Collection<Callable<List<Integer>>> workers = createWorkers(numPrefilled);
+
+		System.out.println("PriorityQueueBenchmark [" + pq.getClass().getSimpleName() + "] running...");
+
+		long startTime = System.nanoTime();
+
+		List<Future<List<Integer>>> futures = executorService.invokeAll(workers);
+
+		long endTime = System.nanoTime();
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+
+		executorService.shutdown();
+
+		List<Integer> deletedItems = gatherDeletedItems(futures);
+		long numOps = (numItems - numPrefilled) + deletedItems.size();
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+		RankError rankError = RankError.compute(insertTimes, removeTimes);
+
+		System.out.println("PriorityQueueBenchmark [" + pq.getClass().getSimpleName() + "] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = numOps / seconds;
+		System.out.println(String.format("Throughput:      %.0f operations/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "operations/second");
+		System.out.println(String.format("Rank error:      %.2f mean, %d max", rankError.getMean(), rankError.getMax()));
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		if (pq.deleteMin() != null) {
+			System.out.println("\tThe priority queue is not empty after test");
+		}
+
+		if (deletedItems.size() != numItems) {
+			System.out.println("\tInserted " + numItems + " items but deleted " + deletedItems.size() + " items");
+		}
+
+		if (hasDuplicates(deletedItems)) {
+			System.out.println("\tDuplicate element(s) were deleted from the priority queue");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		pq.printStats(System.out);
+	}
+
+	private Collection<Callable<List<Integer>>> createWorkers(int numPrefilled) {
+		Collection<Callable<List<Integer>>> workers = new ArrayList<>();
+
+		int numRemaining = numItems - numPrefilled;
+		int itemsPerWorker = numRemaining / numThreads;
+
+		for (int i = 0; i < numThreads; i++) {
+			int from = numPrefilled + i * itemsPerWorker;
+			int to = (i == numThreads - 1) ? numItems : from + itemsPerWorker;
+			workers.add(new PriorityQueueWorker(i, items.subList(from, to)));
+		}
+
+		return workers;
+	}
+
+	private List<Integer> gatherDeletedItems(List<Future<List<Integer>>> futures)
+			throws InterruptedException, ExecutionException {
+		List<Integer> deletedItems = new ArrayList<>();
+
+		for (Future<List<Integer>> future : futures) {
+			deletedItems.addAll(future.get());
+		}
+
+		return deletedItems;
+	}
+
+	private boolean hasDuplicates(List<Integer> items) {
+		Set<Integer> set = new HashSet<>();
+		set.addAll(items);
+		return set.size() < items.size();
+	}
+
+	private class PriorityQueueWorker implements Callable<List<Integer>> {
+		private List<Integer> items;
+		private Random random;
+
+		PriorityQueueWorker(int id, List<Integer> items) {
+			this.items = items;
+			this.random = new Random(id);
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			Workload.Runner work = workload.newRunner();
+			List<Integer> deleted = new ArrayList<>();
+			int numInserted = 0;
+
+			while (numInserted < items.size() || numDeleted.get() < numItems) {
+				if (numInserted < items.size() && random.nextBoolean()) {
+					Integer item = items.get(numInserted++);
+					insertTimes[item] = System.nanoTime();
+					pq.insert(item);
+				} else {
+					Integer item = pq.deleteMin();
+
+					if (item != null) {
+						removeTimes[item] = System.nanoTime();
+						deleted.add(item);
+						numDeleted.incrementAndGet();
+					}
+				}
+
+				work.run();
+			}
+
+			return deleted;
+		}
+
+	}
+
+}
@@ -1,9 +1,15 @@
 package io.github.chatzikalymnios.lfdsbenchmarker;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -11,6 +17,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,24 +27,105 @@ import io.github.chatzikalymnios.lfds.LockFreeQueue;
 public class QueueBenchmark implements Benchmark {
 	private static final Logger logger = LoggerFactory.getLogger(QueueBenchmark.class);
 
-	private static final int NANO_IN_MICROSECONDS = 1000;
 	private static final int NANO_IN_MILLISECONDS = 1000000;
 
 	private ExecutorService executorService;
-	private LockFreeQueue<Integer> queue;
+	private LockFreeQueue<Object> queue;
 	private int numThreads;
+	private int numProducers;
 	private int numItems;
-	private int workload;
+	private Workload workload;
 	private List<Integer> items;
-
-	public QueueBenchmark(LockFreeQueue<Integer> queue, int numThreads, int numItems, int workload) {
+	private PayloadFactory payloads;
+
+	/*
+	 * Per-worker latency recorders, only used if latency recording is enabled.
+	 */
+	private final boolean recordLatency;
+	private final List<LatencyRecorder> enqueueLatencies = new ArrayList<>();
+	private final List<LatencyRecorder> dequeueLatencies = new ArrayList<>();
+
+	/*
+	 * Start times of the enqueues and completion times of the dequeues of each
+	 * item, only used if order deviation is measured. Each entry is written by a
+	 * single thread.
+	 */
+	private final boolean measureOrder;
+	private long[] enqueueTimes;
+	private long[] dequeueTimes;
+
+	/*
+	 * Open-loop arrival schedule of the enqueuing workers, or null for a closed
+	 * loop.
+	 */
+	private final ArrivalSchedule arrivals;
+
+	/*
+	 * Timeline sampler, or null if sampling is disabled.
+	 */
+	private final Sampler sampler;
+
+	/*
+	 * Journal file of the operations, or null if journaling is disabled.
+	 */
+	private final File journalFile;
+	private Journal journal;
+
+	/*
+	 * Number of items dequeued so far by the consumers in producer/consumer mode.
+	 */
+	private final AtomicInteger numConsumed = new AtomicInteger(0);
+
+	/**
+	 * Creates a queue benchmark. If <code>numProducers</code> is 0, every thread
+	 * enqueues its share of the items and then dequeues the same number of items.
+	 * Otherwise <code>numProducers</code> threads only enqueue, while the remaining
+	 * threads concurrently dequeue until all items have been consumed.
+	 *
+	 * If <code>recordLatency</code> is set, the latency of every enqueue and every
+	 * successful dequeue is recorded, and the latency percentiles are included in
+	 * the report. If <code>measureOrder</code> is set, the report includes the
+	 * order deviation of the dequeues, i.e. the number of items enqueued earlier
+	 * that were still in the queue when an item was dequeued.
+	 *
+	 * If <code>arrivals</code> is not <code>null</code>, the benchmark runs open
+	 * loop: every enqueuing or dequeuing worker (but not the consumers of the
+	 * producer/consumer mode, which poll) issues its operations according to the
+	 * arrival schedule, and latencies are always recorded, measured from the
+	 * intended start time of each operation.
+	 *
+	 * If <code>sampler</code> is not <code>null</code>, it samples the operations
+	 * of the workers and the statistics of the queue while the benchmark runs.
+	 *
+	 * The elements of the queue are created and consumed by <code>payloads</code>.
+	 * If <code>journalFile</code> is not <code>null</code>, every enqueue and
+	 * dequeue (but not the empty polls of the consumers) is recorded in a
+	 * {@link Journal} written to that file.
+	 */
+	public QueueBenchmark(LockFreeQueue<Object> queue, int numThreads, int numProducers, int numItems,
+			Workload workload, boolean recordLatency, boolean measureOrder, ArrivalSchedule arrivals,
+			Sampler sampler, PayloadFactory payloads, File journalFile) {
 		this.executorService = Executors.newFixedThreadPool(numThreads);
 		this.queue = queue;
 		this.numThreads = numThreads;
+		this.numProducers = numProducers;
 		this.numItems = numItems;
 		this.workload = workload;
+		this.recordLatency = recordLatency || (arrivals != null);
+		this.measureOrder = measureOrder;
+		this.arrivals = arrivals;
+		this.sampler = sampler;
+		this.payloads = payloads;
+		this.journalFile = journalFile;
 
 		this.items = createItems(numItems);
+		payloads.prepare(items);
+
+		if (measureOrder) {
+			this.enqueueTimes = new long[numItems];
+			this.dequeueTimes = new long[numItems];
+			Arrays.fill(dequeueTimes, Long.MAX_VALUE);
+		}
 	}
 
 	private List<Integer> createItems(int numItems) {
@@ -64,20 +152,78 @@ public class QueueBenchmark implements Benchmark {
 	public void run() throws InterruptedException, ExecutionException {
 		Collection<Callable<List<Integer>>> workers = createWorkers();
 
+		if (journalFile != null) {
+			try {
+				// A consumer may dequeue every item
+				journal = new Journal(journalFile, numThreads,
+						(numProducers > 0) ? numItems : 2 * (numItems / numThreads));
+			} catch (IOException e) {
+				logger.error("Could not create journal: " + e.getMessage());
+				return;
+			}
+		}
+
 		System.out.println("QueueBenchmark [" + queue.getClass().getSimpleName() + "] running...");
 
+		if (sampler != null) {
+			sampler.start(numThreads, new Sampler.StatsSource() {
+				@Override
+				public Map<String, Long> getStats() {
+					return queue.getStats();
+				}
+			});
+		}
+
+		GcStats gcBefore = GcStats.snapshot();
 		long startTime = System.nanoTime();
 
 		List<Future<List<Integer>>> futures = executorService.invokeAll(workers);
 
 		long endTime = System.nanoTime();
+		GcStats gcAfter = GcStats.snapshot();
+
+		if (sampler != null) {
+			sampler.stop();
+		}
 		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
 
 		executorService.shutdown();
 
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+
 		System.out.println("QueueBenchmark [" + queue.getClass().getSimpleName() + "] completed");
 		System.out.println("---------------------------------------------------");
 		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = 2 * numItems / seconds;
+		System.out.println(String.format("Throughput:   %.0f operations/second", throughput));
+		System.out.println("Payload:      " + payloads);
+		gcAfter.printSince(System.out, gcBefore);
+		ForkResult.print(elapsedTime, throughput, "operations/second", gcBefore, gcAfter);
+
+		if (arrivals != null) {
+			System.out.println(String.format("Open loop:    %.0f operations/second per thread (%s arrivals)",
+					arrivals.getRatePerThread(), arrivals.getDistribution().toString().toLowerCase()));
+		}
+
+		if (sampler != null) {
+			sampler.printSummary(System.out);
+		}
+
+		if (journal != null) {
+			closeJournal();
+		}
+
+		if (recordLatency) {
+			LatencyRecorder.merge(enqueueLatencies).printPercentiles(System.out, "Enqueue");
+			LatencyRecorder.merge(dequeueLatencies).printPercentiles(System.out, "Dequeue");
+		}
+
+		if (measureOrder) {
+			RankError orderDeviation = computeOrderDeviation();
+			System.out.println(String.format("Order deviation: mean %.2f, max %d", orderDeviation.getMean(),
+					orderDeviation.getMax()));
+		}
+
 		System.out.println("---------------------------------------------------");
 
 		System.out.println("Errors:");
@@ -102,6 +248,10 @@ public class QueueBenchmark implements Benchmark {
 	}
 
 	private Collection<Callable<List<Integer>>> createWorkers() {
+		if (numProducers > 0) {
+			return createProducersAndConsumers();
+		}
+
 		Collection<Callable<List<Integer>>> workers = new ArrayList<>();
 
 		int numUsedItems = 0;
@@ -111,14 +261,46 @@ public class QueueBenchmark implements Benchmark {
 			int from = i * itemsPerWorker;
 			int to = Math.min((i + 1) * itemsPerWorker, numItems);
 			numUsedItems += to - from;
-			workers.add(new QueueWorker(items.subList(from, to), itemsPerWorker));
+			workers.add(new QueueWorker(i, items.subList(from, to), itemsPerWorker));
+		}
+
+		numItems = numUsedItems;
+
+		return workers;
+	}
+
+	private Collection<Callable<List<Integer>>> createProducersAndConsumers() {
+		Collection<Callable<List<Integer>>> workers = new ArrayList<>();
+
+		int numUsedItems = 0;
+		int itemsPerProducer = numItems / numProducers;
+
+		for (int i = 0; i < numProducers; i++) {
+			int from = i * itemsPerProducer;
+			int to = Math.min((i + 1) * itemsPerProducer, numItems);
+			numUsedItems += to - from;
+			workers.add(new ProducerWorker(i, items.subList(from, to)));
 		}
 
 		numItems = numUsedItems;
 
+		for (int i = numProducers; i < numThreads; i++) {
+			workers.add(new ConsumerWorker(i));
+		}
+
 		return workers;
 	}
 
+	private void closeJournal() {
+		try {
+			journal.close();
+			System.out.println("Journal:      " + journal.getNumRecords() + " records written to "
+					+ journal.getFile() + " (" + journal.getNumDropped() + " dropped)");
+		} catch (IOException e) {
+			logger.error("Could not write journal: " + e.getMessage());
+		}
+	}
+
 	private List<Integer> gatherDequeuedItems(List<Future<List<Integer>>> futures)
 			throws InterruptedException, ExecutionException {
 		List<Integer> dequeuedItems = new ArrayList<>();
@@ -130,44 +312,271 @@ public class QueueBenchmark implements Benchmark {
 		return dequeuedItems;
 	}
 
+	/**
+	 * Computes the order deviation as the rank error of the dequeues, where the
+	 * rank of an item is its position in the enqueue order.
+	 */
+	private RankError computeOrderDeviation() {
+		List<Integer> enqueued = new ArrayList<>(items.subList(0, numItems));
+
+		Collections.sort(enqueued, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(enqueueTimes[a], enqueueTimes[b]);
+			}
+		});
+
+		long[] insertTimes = new long[numItems];
+		long[] removeTimes = new long[numItems];
+
+		for (int rank = 0; rank < numItems; rank++) {
+			insertTimes[rank] = enqueueTimes[enqueued.get(rank)];
+			removeTimes[rank] = dequeueTimes[enqueued.get(rank)];
+		}
+
+		return RankError.compute(insertTimes, removeTimes);
+	}
+
 	private boolean hasDuplicates(List<Integer> items) {
 		Set<Integer> set = new HashSet<>();
 		set.addAll(items);
 		return set.size() < items.size();
 	}
 
+	/**
+	 * Creates and registers a latency recorder for a worker, or returns
+	 * <code>null</code> if latency recording is disabled.
+	 */
+	private LatencyRecorder createRecorder(List<LatencyRecorder> recorders, int capacity) {
+		if (!recordLatency) {
+			return null;
+		}
+
+		LatencyRecorder recorder = new LatencyRecorder(capacity);
+		recorders.add(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Creates a pacer for a worker, or returns <code>null</code> in a closed loop.
+	 */
+	private ArrivalSchedule.Pacer createPacer(int id) {
+		return (arrivals != null) ? arrivals.createPacer(id + 1) : null;
+	}
+
+	/**
+	 * Creates the operation counter of a worker, or returns <code>null</code> if
+	 * sampling is disabled. Must be called by the worker itself.
+	 */
+	private Sampler.Counter createCounter(int id) {
+		return (sampler != null) ? sampler.newCounter(id) : null;
+	}
+
+	/**
+	 * Returns the journal writer of a worker, or <code>null</code> if journaling
+	 * is disabled.
+	 */
+	private Journal.Writer createWriter(int id) {
+		return (journal != null) ? journal.writer(id) : null;
+	}
+
+	/**
+	 * Records the latency of an enqueue and its journal record, if either is
+	 * enabled.
+	 */
+	private void recordEnqueue(LatencyRecorder latency, Journal.Writer writer, long intended, int item) {
+		if (latency == null && writer == null) {
+			return;
+		}
+
+		long end = System.nanoTime();
+
+		if (latency != null) {
+			latency.record(end - intended);
+		}
+
+		if (writer != null) {
+			writer.record(Journal.Op.ENQUEUE, intended, end, item);
+		}
+	}
+
+	/**
+	 * Returns the intended start time of the next operation, which is the current
+	 * time in a closed loop. Only called if latencies or the journal need it,
+	 * which is always the case in an open loop.
+	 */
+	private long awaitNext(ArrivalSchedule.Pacer pacer) {
+		return (pacer != null) ? pacer.awaitNext() : System.nanoTime();
+	}
+
 	private class QueueWorker implements Callable<List<Integer>> {
 		private List<Integer> items;
 		private int numOps;
+		private LatencyRecorder enqueueLatency;
+		private LatencyRecorder dequeueLatency;
+		private ArrivalSchedule.Pacer pacer;
+		private int id;
 
-		QueueWorker(List<Integer> items, int numOps) {
+		QueueWorker(int id, List<Integer> items, int numOps) {
+			this.id = id;
 			this.items = items;
 			this.numOps = numOps;
+			this.enqueueLatency = createRecorder(enqueueLatencies, numOps);
+			this.dequeueLatency = createRecorder(dequeueLatencies, numOps);
+			this.pacer = createPacer(id);
 		}
 
 		@Override
 		public List<Integer> call() throws Exception {
+			Workload.Runner work = workload.newRunner();
 			List<Integer> dequeued = new ArrayList<>();
+			Sampler.Counter counter = createCounter(id);
+			Journal.Writer writer = createWriter(id);
+			boolean timed = recordLatency || writer != null;
 
 			for (int i = 0; i < numOps; i++) {
-				queue.enqueue(items.get(i));
-				spin();
+				long intended = timed ? awaitNext(pacer) : 0;
+				long start = measureOrder ? System.nanoTime() : 0;
+				queue.enqueue(payloads.get(items.get(i)));
+
+				if (measureOrder) {
+					enqueueTimes[items.get(i)] = start;
+				}
+
+				recordEnqueue(enqueueLatency, writer, intended, items.get(i));
+
+				if (counter != null) {
+					counter.increment();
+				}
+
+				work.run();
 			}
 
 			for (int i = 0; i < numOps; i++) {
-				dequeued.add(queue.dequeue());
-				spin();
+				long intended = timed ? awaitNext(pacer) : 0;
+				Object element = queue.dequeue();
+				long end = (timed || measureOrder) ? System.nanoTime() : 0;
+				Integer item = payloads.consume(element);
+
+				dequeued.add(item);
+
+				if (measureOrder && item != null) {
+					dequeueTimes[item] = end;
+				}
+
+				if (dequeueLatency != null) {
+					dequeueLatency.record(end - intended);
+				}
+
+				if (writer != null) {
+					writer.record(Journal.Op.DEQUEUE, intended, end, (item != null) ? item : Journal.EMPTY);
+				}
+
+				if (counter != null) {
+					counter.increment();
+				}
+
+				work.run();
 			}
 
 			return dequeued;
 		}
 
-		private void spin() {
-			long start = System.nanoTime();
-			long end = start + workload * NANO_IN_MICROSECONDS;
+	}
+
+	private class ProducerWorker implements Callable<List<Integer>> {
+		private List<Integer> items;
+		private LatencyRecorder enqueueLatency;
+		private ArrivalSchedule.Pacer pacer;
+		private int id;
+
+		ProducerWorker(int id, List<Integer> items) {
+			this.id = id;
+			this.items = items;
+			this.enqueueLatency = createRecorder(enqueueLatencies, items.size());
+			this.pacer = createPacer(id);
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			Workload.Runner work = workload.newRunner();
+			Sampler.Counter counter = createCounter(id);
+			Journal.Writer writer = createWriter(id);
+			boolean timed = recordLatency || writer != null;
+
+			for (Integer item : items) {
+				long intended = timed ? awaitNext(pacer) : 0;
+				long start = measureOrder ? System.nanoTime() : 0;
+				queue.enqueue(payloads.get(item));
+
+				if (measureOrder) {
+					enqueueTimes[item] = start;
+				}
+
+				recordEnqueue(enqueueLatency, writer, intended, item);
+
+				if (counter != null) {
+					counter.increment();
+				}
+
+				work.run();
+			}
+
+			return new ArrayList<>();
+		}
+
+	}
+
+	private class ConsumerWorker implements Callable<List<Integer>> {
+		private LatencyRecorder dequeueLatency;
+		private int id;
+
+		ConsumerWorker(int id) {
+			this.id = id;
+			this.dequeueLatency = createRecorder(dequeueLatencies, numItems / (numThreads - numProducers) + 1);
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			Workload.Runner work = workload.newRunner();
+			List<Integer> dequeued = new ArrayList<>();
+			Sampler.Counter counter = createCounter(id);
+			Journal.Writer writer = createWriter(id);
+			boolean timed = recordLatency || writer != null;
+
+			while (numConsumed.get() < numItems) {
+				long start = timed ? System.nanoTime() : 0;
+				Object element = queue.dequeue();
+
+				if (element != null) {
+					long end = (timed || measureOrder) ? System.nanoTime() : 0;
+					Integer item = payloads.consume(element);
 
-			while (System.nanoTime() < end) {
+					if (measureOrder) {
+						dequeueTimes[item] = end;
+					}
+
+					// Only successful dequeues are recorded, empty polls are not
+					if (dequeueLatency != null) {
+						dequeueLatency.record(end - start);
+					}
+
+					if (writer != null) {
+						writer.record(Journal.Op.DEQUEUE, start, end, item);
+					}
+
+					dequeued.add(item);
+					numConsumed.incrementAndGet();
+
+					if (counter != null) {
+						counter.increment();
+					}
+
+					work.run();
+				}
 			}
+
+			return dequeued;
 		}
 
 	}
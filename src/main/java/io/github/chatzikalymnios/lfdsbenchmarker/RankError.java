@@ -0,0 +1,106 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Computes the rank error of the removals of a relaxed data structure from the
+ * times at which each item was inserted and removed. Items are identified by a
+ * key in <code>[0, numKeys)</code>, where smaller keys should be removed first
+ * (smaller priorities for priority queues, earlier enqueues for queues).
+ *
+ * The insertions and removals are replayed in time order, and the rank error of
+ * a removal is the number of items with a smaller key that were present in the
+ * data structure at that time. Insertions should be timestamped when they start
+ * and removals when they complete, so that every item is inserted before it is
+ * removed. The result is therefore an approximation of the rank error at the
+ * linearization points.
+ */
+public class RankError {
+	private long numRemovals;
+	private long sum;
+	private long max;
+
+	private RankError() {
+	}
+
+	/**
+	 * Replays the provided operations and computes the rank error of every
+	 * removal. Items that were never removed must have a removal time of
+	 * <code>Long.MAX_VALUE</code>.
+	 *
+	 * @param insertTimes
+	 *            the insertion time of each key
+	 * @param removeTimes
+	 *            the removal time of each key
+	 * @return the rank error summary
+	 */
+	public static RankError compute(long[] insertTimes, long[] removeTimes) {
+		int numKeys = insertTimes.length;
+		Integer[] events = new Integer[2 * numKeys];
+
+		// Even events are insertions, odd events are removals of key (event / 2)
+		for (int i = 0; i < events.length; i++) {
+			events[i] = i;
+		}
+
+		Arrays.sort(events, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				long timeA = ((a & 1) == 0) ? insertTimes[a >> 1] : removeTimes[a >> 1];
+				long timeB = ((b & 1) == 0) ? insertTimes[b >> 1] : removeTimes[b >> 1];
+
+				if (timeA != timeB) {
+					return Long.compare(timeA, timeB);
+				}
+
+				// An item is inserted before it is removed
+				return Integer.compare(a & 1, b & 1);
+			}
+		});
+
+		RankError result = new RankError();
+		long[] tree = new long[numKeys + 1]; // Fenwick tree of present keys
+
+		for (int event : events) {
+			int key = event >> 1;
+
+			if ((event & 1) == 0) {
+				update(tree, key, 1);
+			} else if (removeTimes[key] != Long.MAX_VALUE) {
+				long rank = countBelow(tree, key);
+				update(tree, key, -1);
+
+				result.numRemovals++;
+				result.sum += rank;
+				result.max = Math.max(result.max, rank);
+			}
+		}
+
+		return result;
+	}
+
+	private static void update(long[] tree, int key, long delta) {
+		for (int i = key + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	private static long countBelow(long[] tree, int key) {
+		long count = 0;
+
+		for (int i = key; i > 0; i -= i & -i) {
+			count += tree[i];
+		}
+
+		return count;
+	}
+
+	public double getMean() {
+		return (numRemovals == 0) ? 0 : (double) sum / numRemovals;
+	}
+
+	public long getMax() {
+		return max;
+	}
+}
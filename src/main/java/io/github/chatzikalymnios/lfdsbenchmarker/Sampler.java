@@ -0,0 +1,303 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the progress of a running benchmark at a fixed interval.
+ *
+ * Every worker counts its completed operations in its own {@link Counter}. A
+ * background thread periodically sums the counters, snapshots the statistics
+ * of the data structure, prints the throughput of the last interval and, if an
+ * export writer was provided, appends a CSV row with the per-worker counts and
+ * the structure statistics. The resulting timeline shows JIT warmup, garbage
+ * collection stalls and statistics such as eliminations drifting over a run.
+ *
+ * The values of the most recent sample are exposed as a {@link SamplerMXBean}
+ * registered with the platform MBean server while the sampler runs, so that
+ * they can be inspected mid-run, e.g. with JConsole.
+ */
+public class Sampler implements SamplerMXBean {
+	private static final Logger logger = LoggerFactory.getLogger(Sampler.class);
+
+	private static final String OBJECT_NAME = "io.github.chatzikalymnios.lfdsbenchmarker:type=Sampler";
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+
+	/**
+	 * Source of the data structure statistics, usually the
+	 * <code>getStats</code> method of the benchmarked data structure.
+	 */
+	public interface StatsSource {
+		/**
+		 * Returns a snapshot of the integer statistics of the data structure, by
+		 * name.
+		 */
+		Map<String, Long> getStats();
+	}
+
+	private final long interval; // milliseconds
+	private final PrintWriter export;
+
+	private ScheduledExecutorService executor;
+	private ObjectName objectName;
+	private StatsSource structure;
+	private AtomicReferenceArray<Counter> counters;
+	private List<String> statNames;
+	private long startTime;
+	private long lastTime;
+	private long lastTotal;
+	private final List<Double> timeline = new ArrayList<>();
+
+	// Values of the most recent sample
+	private volatile long elapsedMillis;
+	private volatile long totalOperations;
+	private volatile double operationsPerSecond;
+	private volatile long[] threadOperations = new long[0];
+	private volatile Map<String, Long> structureStats = Collections.emptyMap();
+
+	/**
+	 * Creates a sampler.
+	 *
+	 * @param interval
+	 *            the sampling interval in milliseconds
+	 * @param export
+	 *            the writer to export the timeline to as CSV, or
+	 *            <code>null</code> to only print it
+	 */
+	public Sampler(long interval, PrintWriter export) {
+		this.interval = interval;
+		this.export = export;
+	}
+
+	/**
+	 * Starts sampling a benchmark.
+	 *
+	 * @param numWorkers
+	 *            the number of workers, each of which requests a counter with
+	 *            {@link #newCounter(int)}
+	 * @param structure
+	 *            the source of the data structure statistics
+	 */
+	public synchronized void start(int numWorkers, StatsSource structure) {
+		this.structure = structure;
+		this.counters = new AtomicReferenceArray<>(numWorkers);
+		this.startTime = System.nanoTime();
+		this.lastTime = startTime;
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName(OBJECT_NAME);
+			server.registerMBean(this, objectName);
+		} catch (JMException e) {
+			logger.warn("Could not register the sampler MBean: " + e.getMessage());
+			objectName = null;
+		}
+
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "sampler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates the operation counter of a worker. Must be called by the worker
+	 * itself, so that the counter is allocated close to the worker's other data
+	 * rather than next to the counters of other workers.
+	 *
+	 * @param id
+	 *            the id of the worker, less than the number of workers
+	 * @return the worker's counter
+	 */
+	public Counter newCounter(int id) {
+		Counter counter = new Counter();
+		counters.set(id, counter);
+		return counter;
+	}
+
+	/**
+	 * Stops sampling, after taking a final sample of the partial last interval.
+	 */
+	public void stop() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+		sample();
+
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				logger.warn("Could not unregister the sampler MBean: " + e.getMessage());
+			}
+		}
+
+		if (export != null) {
+			export.close();
+		}
+	}
+
+	private synchronized void sample() {
+		long now = System.nanoTime();
+		long[] counts = new long[counters.length()];
+		long total = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			Counter counter = counters.get(i);
+			counts[i] = (counter == null) ? 0 : counter.get();
+			total += counts[i];
+		}
+
+		Map<String, Long> stats = structure.getStats();
+		double opsPerSecond = (total - lastTotal) * 1e9 / Math.max(now - lastTime, 1);
+
+		elapsedMillis = (now - startTime) / NANO_IN_MILLISECONDS;
+		totalOperations = total;
+		operationsPerSecond = opsPerSecond;
+		threadOperations = counts;
+		structureStats = stats;
+
+		lastTime = now;
+		lastTotal = total;
+		timeline.add(opsPerSecond);
+
+		System.out.println(String.format("Sample %8.3f s: %12.0f operations/second", elapsedMillis / 1000.0,
+				opsPerSecond));
+
+		if (export != null) {
+			exportRow(counts, stats);
+		}
+	}
+
+	/*
+	 * The columns of the structure statistics are those found in the first
+	 * sample; statistics missing from a later sample are left empty.
+	 */
+	private void exportRow(long[] counts, Map<String, Long> stats) {
+		if (statNames == null) {
+			statNames = new ArrayList<>(stats.keySet());
+
+			StringBuilder header = new StringBuilder("elapsed_ms,ops_per_sec,total_ops");
+
+			for (int i = 0; i < counts.length; i++) {
+				header.append(",thread_").append(i);
+			}
+
+			for (String name : statNames) {
+				header.append(',').append(name);
+			}
+
+			export.println(header);
+		}
+
+		StringBuilder row = new StringBuilder();
+		row.append(elapsedMillis).append(',').append(String.format("%.0f", operationsPerSecond)).append(',')
+				.append(totalOperations);
+
+		for (long count : counts) {
+			row.append(',').append(count);
+		}
+
+		for (String name : statNames) {
+			Long value = stats.get(name);
+			row.append(',').append((value == null) ? "" : value.toString());
+		}
+
+		export.println(row);
+	}
+
+	/**
+	 * Prints a summary of the timeline, with the throughput of the slowest and
+	 * the fastest interval.
+	 *
+	 * @param stream
+	 *            PrintStream to print the summary to
+	 */
+	public synchronized void printSummary(PrintStream stream) {
+		if (timeline.isEmpty()) {
+			return;
+		}
+
+		double min = Double.MAX_VALUE;
+		double max = 0;
+
+		for (double opsPerSecond : timeline) {
+			min = Math.min(min, opsPerSecond);
+			max = Math.max(max, opsPerSecond);
+		}
+
+		stream.println(String.format("Timeline:     %d samples of %d milliseconds, min %.0f, max %.0f "
+				+ "operations/second", timeline.size(), interval, min, max));
+	}
+
+	@Override
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public long getTotalOperations() {
+		return totalOperations;
+	}
+
+	@Override
+	public double getOperationsPerSecond() {
+		return operationsPerSecond;
+	}
+
+	@Override
+	public long[] getThreadOperations() {
+		return Arrays.copyOf(threadOperations, threadOperations.length);
+	}
+
+	@Override
+	public Map<String, Long> getStructureStats() {
+		return structureStats;
+	}
+
+	/**
+	 * Counts the operations of a single worker. Only the owner increments the
+	 * counter, so it is updated with an ordered store instead of an atomic
+	 * increment.
+	 */
+	public static class Counter {
+		private final AtomicLong count = new AtomicLong(0);
+
+		public void increment() {
+			count.lazySet(count.get() + 1);
+		}
+
+		long get() {
+			return count.get();
+		}
+	}
+}
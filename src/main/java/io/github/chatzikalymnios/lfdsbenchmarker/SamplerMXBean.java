@@ -0,0 +1,34 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.Map;
+
+/**
+ * Management interface of a running {@link Sampler}. The values are those of
+ * the most recent sample.
+ */
+public interface SamplerMXBean {
+	/**
+	 * @return the time since the benchmark started in milliseconds
+	 */
+	long getElapsedMillis();
+
+	/**
+	 * @return the number of operations completed by all workers
+	 */
+	long getTotalOperations();
+
+	/**
+	 * @return the throughput of all workers during the last interval
+	 */
+	double getOperationsPerSecond();
+
+	/**
+	 * @return the number of operations completed by each worker
+	 */
+	long[] getThreadOperations();
+
+	/**
+	 * @return the integer statistics of the data structure, by name
+	 */
+	Map<String, Long> getStructureStats();
+}
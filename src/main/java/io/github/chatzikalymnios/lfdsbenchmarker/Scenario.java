@@ -0,0 +1,354 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A schedule of benchmark phases, read from a scenario file.
+ *
+ * Every non-empty line of a scenario file that does not start with
+ * <code>#</code> describes a phase, as a phase kind followed by
+ * <code>key=value</code> parameters:
+ * <ul>
+ * <li><code>fill items=N</code>: a single thread inserts <code>N</code>
+ * items</li>
+ * <li><code>mix threads=T ops=N insert=P work=W</code>: <code>T</code> threads
+ * each perform <code>N</code> operations, <code>P</code> percent of which
+ * (default 50) are inserts (pushes or enqueues) and the rest removes (pops or
+ * dequeues), running a workload of <code>W</code> microseconds after every
+ * operation</li>
+ * <li><code>ramp from=A to=B steps=S ops=N insert=P work=W</code>: a sequence
+ * of <code>S</code> mix phases whose number of threads goes from
+ * <code>A</code> to <code>B</code>, ramping the active threads up or
+ * down</li>
+ * <li><code>pool threads=T cycles=N size=K work=W</code>: <code>T</code>
+ * threads each borrow <code>K</code> items (default 1) by removing them, hold
+ * them for a workload of <code>W</code> microseconds and return them by
+ * inserting them again, <code>N</code> times</li>
+ * <li><code>idle ms=M</code>: no thread accesses the data structure for
+ * <code>M</code> milliseconds</li>
+ * </ul>
+ *
+ * Phases run one after the other. A block of phases between
+ * <code>repeat N</code> and <code>end</code> is repeated <code>N</code> times,
+ * e.g. to alternate push-heavy and pop-heavy bursts. Phases without a
+ * <code>work</code> parameter run the default workload.
+ */
+public class Scenario {
+	/**
+	 * Phase kinds.
+	 */
+	public static enum Kind {
+		FILL, MIX, POOL, IDLE
+	};
+
+	private static final Map<String, List<String>> KEYS = new HashMap<>();
+
+	static {
+		KEYS.put("fill", Arrays.asList("items"));
+		KEYS.put("mix", Arrays.asList("threads", "ops", "insert", "work"));
+		KEYS.put("ramp", Arrays.asList("from", "to", "steps", "ops", "insert", "work"));
+		KEYS.put("pool", Arrays.asList("threads", "cycles", "size", "work"));
+		KEYS.put("idle", Arrays.asList("ms"));
+	}
+
+	/**
+	 * A single phase of a scenario.
+	 */
+	public static class Phase {
+		private final Kind kind;
+		private final int numThreads;
+		private final int numOps; // per thread; items to insert for FILL
+		private final int insertPercent;
+		private final int poolSize;
+		private final long idleMillis;
+		private final Workload workload;
+
+		Phase(Kind kind, int numThreads, int numOps, int insertPercent, int poolSize, long idleMillis,
+				Workload workload) {
+			this.kind = kind;
+			this.numThreads = numThreads;
+			this.numOps = numOps;
+			this.insertPercent = insertPercent;
+			this.poolSize = poolSize;
+			this.idleMillis = idleMillis;
+			this.workload = workload;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		public int getNumThreads() {
+			return numThreads;
+		}
+
+		public int getNumOps() {
+			return numOps;
+		}
+
+		public int getInsertPercent() {
+			return insertPercent;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public long getIdleMillis() {
+			return idleMillis;
+		}
+
+		public Workload getWorkload() {
+			return workload;
+		}
+
+		@Override
+		public String toString() {
+			switch (kind) {
+			case FILL:
+				return "fill items=" + numOps;
+			case MIX:
+				return "mix threads=" + numThreads + " ops=" + numOps + " insert=" + insertPercent;
+			case POOL:
+				return "pool threads=" + numThreads + " cycles=" + numOps + " size=" + poolSize;
+			default:
+				return "idle ms=" + idleMillis;
+			}
+		}
+	}
+
+	private final List<Phase> phases;
+
+	private Scenario(List<Phase> phases) {
+		this.phases = Collections.unmodifiableList(phases);
+	}
+
+	public List<Phase> getPhases() {
+		return phases;
+	}
+
+	/**
+	 * Returns the largest number of threads of any phase, which is the number of
+	 * distinct threads that access the data structure.
+	 */
+	public int getMaxThreads() {
+		int maxThreads = 1;
+
+		for (Phase phase : phases) {
+			maxThreads = Math.max(maxThreads, phase.getNumThreads());
+		}
+
+		return maxThreads;
+	}
+
+	/**
+	 * Reads a scenario.
+	 *
+	 * @param reader
+	 *            the reader to read the scenario from
+	 * @param workloadType
+	 *            the kind of workload of phases with a <code>work</code>
+	 *            parameter
+	 * @param workingSetBytes
+	 *            the working-set size of such workloads
+	 * @param defaultWorkload
+	 *            the workload of phases without a <code>work</code> parameter
+	 * @return the scenario
+	 * @throws IOException
+	 *             if the scenario could not be read
+	 * @throws IllegalArgumentException
+	 *             if the scenario is invalid
+	 */
+	public static Scenario parse(Reader reader, Workload.Type workloadType, int workingSetBytes,
+			Workload defaultWorkload) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		Parser parser = new Parser(workloadType, workingSetBytes, defaultWorkload);
+
+		// Phases of the enclosing repeat blocks, innermost last
+		List<List<Phase>> blocks = new ArrayList<>();
+		List<Integer> repeats = new ArrayList<>();
+		blocks.add(new ArrayList<Phase>());
+
+		String line;
+		int lineNumber = 0;
+
+		while ((line = lines.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			String[] tokens = line.split("\\s+");
+			List<Phase> block = blocks.get(blocks.size() - 1);
+
+			try {
+				if (tokens[0].equals("repeat")) {
+					if (tokens.length != 2) {
+						throw new IllegalArgumentException("expected repeat N");
+					}
+
+					repeats.add(parser.parseInt("repeat", tokens[1], 1));
+					blocks.add(new ArrayList<Phase>());
+				} else if (tokens[0].equals("end")) {
+					if (repeats.isEmpty()) {
+						throw new IllegalArgumentException("end without repeat");
+					}
+
+					int times = repeats.remove(repeats.size() - 1);
+					blocks.remove(blocks.size() - 1);
+
+					for (int i = 0; i < times; i++) {
+						blocks.get(blocks.size() - 1).addAll(block);
+					}
+				} else {
+					block.addAll(parser.parsePhases(tokens));
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+
+		if (!repeats.isEmpty()) {
+			throw new IllegalArgumentException("repeat without end");
+		}
+
+		if (blocks.get(0).isEmpty()) {
+			throw new IllegalArgumentException("no phases");
+		}
+
+		return new Scenario(blocks.get(0));
+	}
+
+	private static class Parser {
+		private final Workload.Type workloadType;
+		private final int workingSetBytes;
+		private final Workload defaultWorkload;
+
+		Parser(Workload.Type workloadType, int workingSetBytes, Workload defaultWorkload) {
+			this.workloadType = workloadType;
+			this.workingSetBytes = workingSetBytes;
+			this.defaultWorkload = defaultWorkload;
+		}
+
+		/**
+		 * Parses the phases described by the tokens of a line: a single phase, or
+		 * several for a ramp.
+		 */
+		List<Phase> parsePhases(String[] tokens) {
+			String kind = tokens[0];
+			List<String> keys = KEYS.get(kind);
+
+			if (keys == null) {
+				throw new IllegalArgumentException("unknown phase " + kind);
+			}
+
+			Map<String, String> params = new HashMap<>();
+
+			for (int i = 1; i < tokens.length; i++) {
+				String[] pair = tokens[i].split("=", 2);
+
+				if (pair.length != 2 || !keys.contains(pair[0])) {
+					throw new IllegalArgumentException("invalid parameter " + tokens[i] + " of " + kind);
+				}
+
+				params.put(pair[0], pair[1]);
+			}
+
+			Workload workload = parseWorkload(params.get("work"));
+			List<Phase> phases = new ArrayList<>();
+
+			switch (kind) {
+			case "fill":
+				phases.add(new Phase(Kind.FILL, 1, required(params, "items", 0), 100, 0, 0, workload));
+				break;
+			case "mix":
+				phases.add(new Phase(Kind.MIX, required(params, "threads", 1), required(params, "ops", 0),
+						optional(params, "insert", 50, 100), 0, 0, workload));
+				break;
+			case "ramp":
+				int from = required(params, "from", 1);
+				int to = required(params, "to", 1);
+				int steps = optional(params, "steps", Math.abs(to - from) + 1, Integer.MAX_VALUE);
+				int ops = required(params, "ops", 0);
+				int insert = optional(params, "insert", 50, 100);
+
+				for (int i = 0; i < steps; i++) {
+					int threads = (steps == 1) ? to : from + (int) Math.round((double) (to - from) * i / (steps - 1));
+					phases.add(new Phase(Kind.MIX, threads, ops, insert, 0, 0, workload));
+				}
+
+				break;
+			case "pool":
+				phases.add(new Phase(Kind.POOL, required(params, "threads", 1), required(params, "cycles", 0), 0,
+						optional(params, "size", 1, Integer.MAX_VALUE), 0, workload));
+				break;
+			default:
+				phases.add(new Phase(Kind.IDLE, 0, 0, 0, 0, required(params, "ms", 0), workload));
+			}
+
+			return phases;
+		}
+
+		private int required(Map<String, String> params, String key, int min) {
+			if (!params.containsKey(key)) {
+				throw new IllegalArgumentException("missing parameter " + key);
+			}
+
+			return parseInt(key, params.get(key), min);
+		}
+
+		private int optional(Map<String, String> params, String key, int defaultValue, int max) {
+			if (!params.containsKey(key)) {
+				return defaultValue;
+			}
+
+			int value = parseInt(key, params.get(key), 0);
+
+			if (value > max) {
+				throw new IllegalArgumentException("invalid " + key + ": " + value);
+			}
+
+			return value;
+		}
+
+		int parseInt(String key, String value, int min) {
+			try {
+				int result = Integer.parseInt(value);
+
+				if (result >= min) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+			}
+
+			throw new IllegalArgumentException("invalid " + key + ": " + value);
+		}
+
+		private Workload parseWorkload(String value) {
+			if (value == null) {
+				return defaultWorkload;
+			}
+
+			try {
+				double microseconds = Double.parseDouble(value);
+
+				if (microseconds >= 0) {
+					return Workload.create(workloadType, microseconds, workingSetBytes);
+				}
+			} catch (NumberFormatException e) {
+			}
+
+			throw new IllegalArgumentException("invalid work: " + value);
+		}
+	}
+}
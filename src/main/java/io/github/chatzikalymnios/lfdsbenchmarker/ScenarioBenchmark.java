@@ -0,0 +1,316 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.github.chatzikalymnios.lfds.LockFreeQueue;
+import io.github.chatzikalymnios.lfds.LockFreeStack;
+
+/**
+ * Runs the phases of a {@link Scenario} against a stack or a queue, one phase
+ * after the other, and reports every phase separately.
+ *
+ * For every phase, the report includes its duration and throughput, the number
+ * of removes that found the data structure empty, and the changes of the
+ * integer statistics of the data structure during the phase, such as the
+ * successful eliminations of a stack. Every inserted item is unique across all
+ * phases, except for the items that pool phases return after borrowing them.
+ * After the last phase, the remaining items are removed to check that every
+ * inserted item that was not removed is still in the data structure exactly
+ * once.
+ */
+public class ScenarioBenchmark implements Benchmark {
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+
+	/*
+	 * The inserts and removes of a stack or a queue.
+	 */
+	private interface Target extends Sampler.StatsSource {
+		void insert(Integer item);
+
+		Integer remove();
+
+		void printStats(PrintStream stream);
+	}
+
+	private ExecutorService executorService;
+	private Target target;
+	private String targetName;
+	private Scenario scenario;
+
+	/*
+	 * The first item of the next phase; every phase inserts items above those of
+	 * the phases before it.
+	 */
+	private int nextItem;
+
+	public ScenarioBenchmark(final LockFreeStack<Integer> stack, Scenario scenario) {
+		this(new Target() {
+			@Override
+			public void insert(Integer item) {
+				stack.push(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return stack.pop();
+			}
+
+			@Override
+			public Map<String, Long> getStats() {
+				return stack.getStats();
+			}
+
+			@Override
+			public void printStats(PrintStream stream) {
+				stack.printStats(stream);
+			}
+		}, stack.getClass().getSimpleName(), scenario);
+	}
+
+	public ScenarioBenchmark(final LockFreeQueue<Integer> queue, Scenario scenario) {
+		this(new Target() {
+			@Override
+			public void insert(Integer item) {
+				queue.enqueue(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return queue.dequeue();
+			}
+
+			@Override
+			public Map<String, Long> getStats() {
+				return queue.getStats();
+			}
+
+			@Override
+			public void printStats(PrintStream stream) {
+				queue.printStats(stream);
+			}
+		}, queue.getClass().getSimpleName(), scenario);
+	}
+
+	private ScenarioBenchmark(Target target, String targetName, Scenario scenario) {
+		this.executorService = Executors.newFixedThreadPool(scenario.getMaxThreads());
+		this.target = target;
+		this.targetName = targetName;
+		this.scenario = scenario;
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		List<Scenario.Phase> phases = scenario.getPhases();
+
+		System.out.println("ScenarioBenchmark [" + targetName + ", " + phases.size() + " phases] running...");
+
+		PhaseStats total = new PhaseStats();
+		Map<String, Long> stats = target.getStats();
+		long startTime = System.nanoTime();
+
+		System.out.println("---------------------------------------------------");
+
+		for (int i = 0; i < phases.size(); i++) {
+			Scenario.Phase phase = phases.get(i);
+			long phaseStart = System.nanoTime();
+			PhaseStats phaseStats = runPhase(phase);
+			long phaseTime = Math.max(System.nanoTime() - phaseStart, 1);
+
+			total.add(phaseStats);
+
+			StringBuilder report = new StringBuilder(String.format("Phase %3d: %-45s %7.1f ms", i, phase,
+					phaseTime / 1e6));
+
+			if (phase.getKind() != Scenario.Kind.IDLE) {
+				report.append(String.format(", %10.0f operations/second, %d empty removes",
+						phaseStats.numOps() * 1e9 / phaseTime, phaseStats.emptyRemoves));
+			}
+
+			System.out.println(report);
+
+			Map<String, Long> newStats = target.getStats();
+
+			for (Map.Entry<String, Long> stat : newStats.entrySet()) {
+				Long old = stats.get(stat.getKey());
+				long delta = stat.getValue() - ((old == null) ? 0 : old);
+
+				if (delta != 0) {
+					System.out.println(String.format("           %s: %+d", stat.getKey(), delta));
+				}
+			}
+
+			stats = newStats;
+		}
+
+		long endTime = System.nanoTime();
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+
+		executorService.shutdown();
+
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+
+		System.out.println("---------------------------------------------------");
+		System.out.println("ScenarioBenchmark [" + targetName + ", " + phases.size() + " phases] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = total.numOps() / seconds;
+		System.out.println(String.format("Throughput:   %.0f operations/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "operations/second");
+		System.out.println("Inserts:      " + total.inserts);
+		System.out.println("Removes:      " + total.removes + " (" + total.emptyRemoves + " empty)");
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		Set<Integer> remaining = new HashSet<>();
+		long numRemaining = 0;
+		Integer item;
+
+		while ((item = target.remove()) != null) {
+			remaining.add(item);
+			numRemaining++;
+		}
+
+		if (numRemaining != total.inserts - total.removes) {
+			System.out.println("\tInserted " + total.inserts + " items and removed " + total.removes
+					+ " items, but " + numRemaining + " items were left");
+		}
+
+		if (remaining.size() < numRemaining) {
+			System.out.println("\tDuplicate element(s) were left in the data structure");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		target.printStats(System.out);
+	}
+
+	private PhaseStats runPhase(Scenario.Phase phase) throws InterruptedException, ExecutionException {
+		PhaseStats stats = new PhaseStats();
+
+		if (phase.getKind() == Scenario.Kind.IDLE) {
+			Thread.sleep(phase.getIdleMillis());
+			return stats;
+		}
+
+		Collection<Callable<PhaseStats>> workers = new ArrayList<>();
+
+		for (int i = 0; i < phase.getNumThreads(); i++) {
+			workers.add(new PhaseWorker(phase, nextItem + i * phase.getNumOps()));
+		}
+
+		if (phase.getKind() != Scenario.Kind.POOL) {
+			nextItem += phase.getNumThreads() * phase.getNumOps();
+		}
+
+		for (Future<PhaseStats> future : executorService.invokeAll(workers)) {
+			stats.add(future.get());
+		}
+
+		return stats;
+	}
+
+	private static class PhaseStats {
+		long inserts;
+		long removes;
+		long emptyRemoves;
+
+		long numOps() {
+			return inserts + removes + emptyRemoves;
+		}
+
+		void add(PhaseStats other) {
+			inserts += other.inserts;
+			removes += other.removes;
+			emptyRemoves += other.emptyRemoves;
+		}
+	}
+
+	private class PhaseWorker implements Callable<PhaseStats> {
+		private Scenario.Phase phase;
+		private int nextItem;
+
+		PhaseWorker(Scenario.Phase phase, int firstItem) {
+			this.phase = phase;
+			this.nextItem = firstItem;
+		}
+
+		@Override
+		public PhaseStats call() throws Exception {
+			Workload.Runner work = phase.getWorkload().newRunner();
+			PhaseStats stats = new PhaseStats();
+
+			switch (phase.getKind()) {
+			case POOL:
+				borrowAndReturn(stats, work);
+				break;
+			default:
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+
+				for (int i = 0; i < phase.getNumOps(); i++) {
+					if (random.nextInt(100) < phase.getInsertPercent()) {
+						insert(nextItem++, stats);
+					} else {
+						remove(stats);
+					}
+
+					work.run();
+				}
+			}
+
+			return stats;
+		}
+
+		private void borrowAndReturn(PhaseStats stats, Workload.Runner work) {
+			List<Integer> borrowed = new ArrayList<>(phase.getPoolSize());
+
+			for (int cycle = 0; cycle < phase.getNumOps(); cycle++) {
+				for (int i = 0; i < phase.getPoolSize(); i++) {
+					Integer item = remove(stats);
+
+					if (item != null) {
+						borrowed.add(item);
+					}
+				}
+
+				work.run();
+
+				for (Integer item : borrowed) {
+					insert(item, stats);
+				}
+
+				borrowed.clear();
+			}
+		}
+
+		private void insert(Integer item, PhaseStats stats) {
+			target.insert(item);
+			stats.inserts++;
+		}
+
+		private Integer remove(PhaseStats stats) {
+			Integer item = target.remove();
+
+			if (item == null) {
+				stats.emptyRemoves++;
+			} else {
+				stats.removes++;
+			}
+
+			return item;
+		}
+
+	}
+}
@@ -0,0 +1,186 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.chatzikalymnios.lfds.LockFreeSet;
+
+/**
+ * Benchmarks a set under a mix of contains, add and remove operations on
+ * uniformly random keys from <code>[0, keyRange)</code>. Before the run, each
+ * key is added to the set with probability 1/2. Each thread then performs its
+ * share of the <code>numOps</code> operations, choosing a contains with
+ * probability <code>readPercent</code>%, an add with probability
+ * <code>insertPercent</code>% and a remove otherwise.
+ */
+public class SetBenchmark implements Benchmark {
+	private static final Logger logger = LoggerFactory.getLogger(SetBenchmark.class);
+
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+
+	private ExecutorService executorService;
+	private LockFreeSet<Integer> set;
+	private int numThreads;
+	private int numOps;
+	private Workload workload;
+	private int readPercent;
+	private int insertPercent;
+	private Integer[] keys;
+
+	public SetBenchmark(LockFreeSet<Integer> set, int numThreads, int numOps, Workload workload, int readPercent,
+			int insertPercent, int keyRange) {
+		this.executorService = Executors.newFixedThreadPool(numThreads);
+		this.set = set;
+		this.numThreads = numThreads;
+		this.numOps = numOps;
+		this.workload = workload;
+		this.readPercent = readPercent;
+		this.insertPercent = insertPercent;
+
+		// Box the keys up front, so that the workers do not allocate them
+		this.keys = new Integer[keyRange];
+		for (int i = 0; i < keyRange; i++) {
+			keys[i] = i;
+		}
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		Random random = new Random(0);
+		long numPrefilled = 0;
+
+		for (Integer key : keys) {
+			if (random.nextBoolean() && set.add(key)) {
+				numPrefilled++;
+			}
+		}
+
+		Collection<Callable<WorkerStats>> workers = createWorkers();
+
+		System.out.println("SetBenchmark [" + set.getClass().getSimpleName() + "] running...");
+		System.out.println("Mix: " + readPercent + "% contains, " + insertPercent + "% add, "
+				+ (100 - readPercent - insertPercent) + "% remove over " + keys.length + " keys");
+
+		long startTime = System.nanoTime();
+
+		List<Future<WorkerStats>> futures = executorService.invokeAll(workers);
+
+		long endTime = System.nanoTime();
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+
+		executorService.shutdown();
+
+		WorkerStats total = new WorkerStats();
+
+		for (Future<WorkerStats> future : futures) {
+			WorkerStats stats = future.get();
+			total.numOps += stats.numOps;
+			total.numHits += stats.numHits;
+			total.numAdded += stats.numAdded;
+			total.numRemoved += stats.numRemoved;
+		}
+
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+
+		System.out.println("SetBenchmark [" + set.getClass().getSimpleName() + "] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = total.numOps / seconds;
+		System.out.println(String.format("Throughput:      %.0f operations/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "operations/second");
+		System.out.println("Successful contains: " + total.numHits);
+		System.out.println("Successful adds:     " + total.numAdded);
+		System.out.println("Successful removes:  " + total.numRemoved);
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		long expectedSize = numPrefilled + total.numAdded - total.numRemoved;
+		long actualSize = 0;
+
+		for (Integer key : keys) {
+			if (set.contains(key)) {
+				actualSize++;
+			}
+		}
+
+		if (actualSize != expectedSize) {
+			System.out.println("\tExpected " + expectedSize + " keys in the set but found " + actualSize + " keys");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		set.printStats(System.out);
+	}
+
+	private Collection<Callable<WorkerStats>> createWorkers() {
+		Collection<Callable<WorkerStats>> workers = new ArrayList<>();
+
+		int opsPerWorker = numOps / numThreads;
+
+		for (int i = 0; i < numThreads; i++) {
+			workers.add(new SetWorker(i, opsPerWorker));
+		}
+
+		return workers;
+	}
+
+	private class WorkerStats {
+		long numOps;
+		long numHits;
+		long numAdded;
+		long numRemoved;
+	}
+
+	private class SetWorker implements Callable<WorkerStats> {
+		private int numOps;
+		private Random random;
+
+		SetWorker(int id, int numOps) {
+			this.numOps = numOps;
+			this.random = new Random(id + 1);
+		}
+
+		@Override
+		public WorkerStats call() throws Exception {
+			Workload.Runner work = workload.newRunner();
+			WorkerStats stats = new WorkerStats();
+
+			for (int i = 0; i < numOps; i++) {
+				Integer key = keys[random.nextInt(keys.length)];
+				int op = random.nextInt(100);
+
+				if (op < readPercent) {
+					if (set.contains(key)) {
+						stats.numHits++;
+					}
+				} else if (op < readPercent + insertPercent) {
+					if (set.add(key)) {
+						stats.numAdded++;
+					}
+				} else {
+					if (set.remove(key)) {
+						stats.numRemoved++;
+					}
+				}
+
+				stats.numOps++;
+				work.run();
+			}
+
+			return stats;
+		}
+
+	}
+
+}
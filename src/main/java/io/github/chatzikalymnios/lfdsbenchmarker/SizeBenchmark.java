@@ -0,0 +1,299 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.github.chatzikalymnios.lfds.DepthCounted;
+import io.github.chatzikalymnios.lfds.DepthCounter;
+import io.github.chatzikalymnios.lfds.LockFreeQueue;
+import io.github.chatzikalymnios.lfds.LockFreeStack;
+
+/**
+ * Measures the cost of keeping track of the size of a stack or queue, and the
+ * latency and accuracy of <code>size()</code>.
+ *
+ * The data structure is filled with a standing depth of items, after which
+ * every thread alternately inserts and removes items, while a monitor thread
+ * reads <code>size()</code> every millisecond, the way an autoscaler would. The
+ * report includes the time of an insert or remove per thread and the latency of
+ * <code>size()</code>. For the {@link DepthCounted} data structures, it also
+ * includes the time of a {@link DepthCounter} update measured on its own with
+ * the same number of threads, which is the bookkeeping cost of every one of
+ * their operations. The other data structures derive their size from state
+ * they keep anyway. After the run, <code>size()</code> is checked against the
+ * number of items left in the data structure.
+ *
+ * Only the worker threads access the data structure, including filling and
+ * draining it, as some data structures support a fixed number of threads.
+ */
+public class SizeBenchmark implements Benchmark {
+	private static final int NANO_IN_MILLISECONDS = 1000000;
+	private static final int STANDING_DEPTH = 1024;
+
+	/*
+	 * The inserts, removes and size of a stack or a queue.
+	 */
+	private interface Target {
+		void insert(Integer item);
+
+		Integer remove();
+
+		int size();
+	}
+
+	private ExecutorService executorService;
+	private ExecutorService monitorService;
+	private Target target;
+	private String targetName;
+	private boolean depthCounted;
+	private int numThreads;
+	private int numItems;
+	private Workload workload;
+
+	private volatile boolean running;
+
+	public SizeBenchmark(final LockFreeStack<Integer> stack, int numThreads, int numItems, Workload workload) {
+		this(new Target() {
+			@Override
+			public void insert(Integer item) {
+				stack.push(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return stack.pop();
+			}
+
+			@Override
+			public int size() {
+				return stack.size();
+			}
+		}, stack.getClass().getSimpleName(), stack instanceof DepthCounted, numThreads, numItems, workload);
+	}
+
+	public SizeBenchmark(final LockFreeQueue<Integer> queue, int numThreads, int numItems, Workload workload) {
+		this(new Target() {
+			@Override
+			public void insert(Integer item) {
+				queue.enqueue(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return queue.dequeue();
+			}
+
+			@Override
+			public int size() {
+				return queue.size();
+			}
+		}, queue.getClass().getSimpleName(), queue instanceof DepthCounted, numThreads, numItems, workload);
+	}
+
+	private SizeBenchmark(Target target, String targetName, boolean depthCounted, int numThreads, int numItems,
+			Workload workload) {
+		this.executorService = Executors.newFixedThreadPool(numThreads);
+		this.monitorService = Executors.newSingleThreadExecutor();
+		this.target = target;
+		this.targetName = targetName;
+		this.depthCounted = depthCounted;
+		this.numThreads = numThreads;
+		this.numItems = numItems;
+		this.workload = workload;
+	}
+
+	@Override
+	public void run() throws InterruptedException, ExecutionException {
+		System.out.println("SizeBenchmark [" + targetName + "] running...");
+
+		int numOps = numItems / numThreads; // insert and remove pairs per thread
+		double updateTime = depthCounted ? measureCounterUpdate(numOps) : 0;
+
+		Collection<Callable<Void>> fillers = new ArrayList<>();
+
+		for (int i = 0; i < numThreads; i++) {
+			final int firstItem = i;
+
+			fillers.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int item = firstItem; item < STANDING_DEPTH; item += numThreads) {
+						target.insert(item);
+					}
+
+					return null;
+				}
+			});
+		}
+
+		for (Future<Void> future : executorService.invokeAll(fillers)) {
+			future.get();
+		}
+
+		Collection<Callable<Void>> workers = new ArrayList<>();
+
+		for (int i = 0; i < numThreads; i++) {
+			workers.add(new SizeWorker(STANDING_DEPTH + i * numOps, numOps));
+		}
+
+		SizeMonitor monitor = new SizeMonitor();
+		running = true;
+		Future<Void> monitorFuture = monitorService.submit(monitor);
+
+		long startTime = System.nanoTime();
+
+		for (Future<Void> future : executorService.invokeAll(workers)) {
+			future.get();
+		}
+
+		long endTime = System.nanoTime();
+
+		running = false;
+		monitorFuture.get();
+		monitorService.shutdown();
+
+		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+		double opTime = (endTime - startTime) / (2.0 * Math.max(numOps, 1));
+
+		System.out.println("SizeBenchmark [" + targetName + "] completed");
+		System.out.println("---------------------------------------------------");
+		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = 2.0 * numOps * numThreads / seconds;
+		System.out.println(String.format("Throughput:   %.0f operations/second", throughput));
+		ForkResult.print(elapsedTime, throughput, "operations/second");
+		System.out.println(String.format("Operation:    %.1f nanoseconds per thread, including the workload",
+				opTime));
+
+		if (depthCounted) {
+			System.out.println(String.format("Counter update: %.1f nanoseconds (%.1f%% of an operation)", updateTime,
+					100 * updateTime / opTime));
+		}
+
+		monitor.latencies.printPercentiles(System.out, "size()");
+		System.out.println("Observed size: min " + monitor.min + ", max " + monitor.max + " (standing depth "
+				+ STANDING_DEPTH + ")");
+
+		System.out.println("---------------------------------------------------");
+
+		System.out.println("Errors:");
+
+		int size = target.size();
+		int remaining = executorService.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				int remaining = 0;
+
+				while (target.remove() != null) {
+					remaining++;
+				}
+
+				return remaining;
+			}
+		}).get();
+
+		if (size != remaining) {
+			System.out.println("\tsize() returned " + size + " after the run, but " + remaining + " items were left");
+		}
+
+		size = target.size();
+
+		if (size != 0) {
+			System.out.println("\tsize() returned " + size + " after the remaining items were removed");
+		}
+
+		System.out.println("---------------------------------------------------");
+
+		executorService.shutdown();
+	}
+
+	/**
+	 * Returns the time of a single depth counter update in nanoseconds, measured
+	 * with the same number of threads updating their own stripe of a shared
+	 * counter. The first round only warms up the JIT compiler.
+	 */
+	private double measureCounterUpdate(final int numOps) throws InterruptedException, ExecutionException {
+		final DepthCounter counter = new DepthCounter();
+		Collection<Callable<Void>> updaters = new ArrayList<>();
+
+		for (int i = 0; i < numThreads; i++) {
+			updaters.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int j = 0; j < numOps; j++) {
+						counter.increment();
+						counter.decrement();
+					}
+
+					return null;
+				}
+			});
+		}
+
+		long elapsedTime = 0;
+
+		for (int round = 0; round < 2; round++) {
+			long startTime = System.nanoTime();
+
+			for (Future<Void> future : executorService.invokeAll(updaters)) {
+				future.get();
+			}
+
+			elapsedTime = System.nanoTime() - startTime;
+		}
+
+		return elapsedTime / (2.0 * Math.max(numOps, 1));
+	}
+
+	private class SizeWorker implements Callable<Void> {
+		private int firstItem;
+		private int numOps;
+
+		SizeWorker(int firstItem, int numOps) {
+			this.firstItem = firstItem;
+			this.numOps = numOps;
+		}
+
+		@Override
+		public Void call() {
+			Workload.Runner work = workload.newRunner();
+			for (int i = 0; i < numOps; i++) {
+				target.insert(firstItem + i);
+				work.run();
+				target.remove();
+				work.run();
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the size every millisecond until the workers are done.
+	 */
+	private class SizeMonitor implements Callable<Void> {
+		final LatencyRecorder latencies = new LatencyRecorder();
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+
+		@Override
+		public Void call() throws InterruptedException {
+			while (running) {
+				long start = System.nanoTime();
+				int size = target.size();
+				latencies.record(System.nanoTime() - start);
+				min = Math.min(min, size);
+				max = Math.max(max, size);
+
+				Thread.sleep(1);
+			}
+
+			return null;
+		}
+	}
+}
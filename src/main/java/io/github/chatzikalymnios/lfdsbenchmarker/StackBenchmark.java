@@ -1,9 +1,12 @@
 package io.github.chatzikalymnios.lfdsbenchmarker;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -20,24 +23,68 @@ import io.github.chatzikalymnios.lfds.LockFreeStack;
 public class StackBenchmark implements Benchmark {
 	private static final Logger logger = LoggerFactory.getLogger(StackBenchmark.class);
 
-	private static final int NANO_IN_MICROSECONDS = 1000;
 	private static final int NANO_IN_MILLISECONDS = 1000000;
 
 	private ExecutorService executorService;
-	private LockFreeStack<Integer> stack;
+	private LockFreeStack<Object> stack;
 	private int numThreads;
 	private int numItems;
-	private int workload;
+	private Workload workload;
 	private List<Integer> items;
-
-	public StackBenchmark(LockFreeStack<Integer> stack, int numThreads, int numItems, int workload) {
+	private PayloadFactory payloads;
+
+	/*
+	 * Per-worker latency recorders, only used if latency recording is enabled.
+	 */
+	private final boolean recordLatency;
+	private final List<LatencyRecorder> pushLatencies = new ArrayList<>();
+	private final List<LatencyRecorder> popLatencies = new ArrayList<>();
+
+	/*
+	 * Open-loop arrival schedule of the workers, or null for a closed loop.
+	 */
+	private final ArrivalSchedule arrivals;
+
+	/*
+	 * Timeline sampler, or null if sampling is disabled.
+	 */
+	private final Sampler sampler;
+
+	/*
+	 * Journal file of the operations, or null if journaling is disabled.
+	 */
+	private final File journalFile;
+	private Journal journal;
+
+	/**
+	 * Creates a stack benchmark. If <code>recordLatency</code> is set, the latency
+	 * of every push and pop is recorded, and the latency percentiles are included
+	 * in the report. If <code>arrivals</code> is not <code>null</code>, the
+	 * benchmark runs open loop: every worker issues its operations according to
+	 * the arrival schedule, and latencies are always recorded, measured from the
+	 * intended start time of each operation. If <code>sampler</code> is not
+	 * <code>null</code>, it samples the operations of the workers and the
+	 * statistics of the stack while the benchmark runs. The elements of the stack
+	 * are created and consumed by <code>payloads</code>. If <code>journalFile</code>
+	 * is not <code>null</code>, every push and pop is recorded in a {@link Journal}
+	 * written to that file.
+	 */
+	public StackBenchmark(LockFreeStack<Object> stack, int numThreads, int numItems, Workload workload,
+			boolean recordLatency, ArrivalSchedule arrivals, Sampler sampler, PayloadFactory payloads,
+			File journalFile) {
 		this.executorService = Executors.newFixedThreadPool(numThreads);
 		this.stack = stack;
 		this.numThreads = numThreads;
 		this.numItems = numItems;
 		this.workload = workload;
+		this.recordLatency = recordLatency || (arrivals != null);
+		this.arrivals = arrivals;
+		this.sampler = sampler;
+		this.payloads = payloads;
+		this.journalFile = journalFile;
 
 		this.items = createItems(numItems);
+		payloads.prepare(items);
 	}
 
 	private List<Integer> createItems(int numItems) {
@@ -64,20 +111,70 @@ public class StackBenchmark implements Benchmark {
 	public void run() throws InterruptedException, ExecutionException {
 		Collection<Callable<List<Integer>>> workers = createWorkers();
 
+		if (journalFile != null) {
+			try {
+				// Every worker pushes and pops the same number of items
+				journal = new Journal(journalFile, numThreads, 2 * (numItems / numThreads));
+			} catch (IOException e) {
+				logger.error("Could not create journal: " + e.getMessage());
+				return;
+			}
+		}
+
 		System.out.println("StackBenchmark [" + stack.getClass().getSimpleName() + "] running...");
 
+		if (sampler != null) {
+			sampler.start(numThreads, new Sampler.StatsSource() {
+				@Override
+				public Map<String, Long> getStats() {
+					return stack.getStats();
+				}
+			});
+		}
+
+		GcStats gcBefore = GcStats.snapshot();
 		long startTime = System.nanoTime();
 
 		List<Future<List<Integer>>> futures = executorService.invokeAll(workers);
 
 		long endTime = System.nanoTime();
+		GcStats gcAfter = GcStats.snapshot();
+
+		if (sampler != null) {
+			sampler.stop();
+		}
 		long elapsedTime = (endTime - startTime) / NANO_IN_MILLISECONDS;
 
 		executorService.shutdown();
 
+		double seconds = Math.max(endTime - startTime, 1) / 1e9;
+
 		System.out.println("StackBenchmark [" + stack.getClass().getSimpleName() + "] completed");
 		System.out.println("---------------------------------------------------");
 		System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+		double throughput = 2 * numItems / seconds;
+		System.out.println(String.format("Throughput:   %.0f operations/second", throughput));
+		System.out.println("Payload:      " + payloads);
+		gcAfter.printSince(System.out, gcBefore);
+		ForkResult.print(elapsedTime, throughput, "operations/second", gcBefore, gcAfter);
+
+		if (arrivals != null) {
+			System.out.println(String.format("Open loop:    %.0f operations/second per thread (%s arrivals)",
+					arrivals.getRatePerThread(), arrivals.getDistribution().toString().toLowerCase()));
+		}
+
+		if (sampler != null) {
+			sampler.printSummary(System.out);
+		}
+
+		if (journal != null) {
+			closeJournal();
+		}
+
+		if (recordLatency) {
+			LatencyRecorder.merge(pushLatencies).printPercentiles(System.out, "Push");
+			LatencyRecorder.merge(popLatencies).printPercentiles(System.out, "Pop");
+		}
 		System.out.println("---------------------------------------------------");
 
 		System.out.println("Errors:");
@@ -111,7 +208,7 @@ public class StackBenchmark implements Benchmark {
 			int from = i * itemsPerWorker;
 			int to = Math.min((i + 1) * itemsPerWorker, numItems);
 			numUsedItems += to - from;
-			workers.add(new StackWorker(items.subList(from, to), itemsPerWorker));
+			workers.add(new StackWorker(i, items.subList(from, to), itemsPerWorker));
 		}
 
 		numItems = numUsedItems;
@@ -119,6 +216,16 @@ public class StackBenchmark implements Benchmark {
 		return workers;
 	}
 
+	private void closeJournal() {
+		try {
+			journal.close();
+			System.out.println("Journal:      " + journal.getNumRecords() + " records written to "
+					+ journal.getFile() + " (" + journal.getNumDropped() + " dropped)");
+		} catch (IOException e) {
+			logger.error("Could not write journal: " + e.getMessage());
+		}
+	}
+
 	private List<Integer> gatherPoppedItems(List<Future<List<Integer>>> futures)
 			throws InterruptedException, ExecutionException {
 		List<Integer> poppedItems = new ArrayList<>();
@@ -139,35 +246,97 @@ public class StackBenchmark implements Benchmark {
 	private class StackWorker implements Callable<List<Integer>> {
 		private List<Integer> items;
 		private int numOps;
+		private LatencyRecorder pushLatency;
+		private LatencyRecorder popLatency;
+		private ArrivalSchedule.Pacer pacer;
+		private int id;
 
-		StackWorker(List<Integer> items, int numOps) {
+		StackWorker(int id, List<Integer> items, int numOps) {
+			this.id = id;
 			this.items = items;
 			this.numOps = numOps;
+
+			if (recordLatency) {
+				this.pushLatency = new LatencyRecorder(numOps);
+				this.popLatency = new LatencyRecorder(numOps);
+				pushLatencies.add(pushLatency);
+				popLatencies.add(popLatency);
+			}
+
+			if (arrivals != null) {
+				this.pacer = arrivals.createPacer(id + 1);
+			}
 		}
 
 		@Override
 		public List<Integer> call() throws Exception {
+			Workload.Runner work = workload.newRunner();
 			List<Integer> popped = new ArrayList<>();
+			Sampler.Counter counter = (sampler != null) ? sampler.newCounter(id) : null;
+			Journal.Writer writer = (journal != null) ? journal.writer(id) : null;
+			boolean timed = recordLatency || writer != null;
 
 			for (int i = 0; i < numOps; i++) {
-				stack.push(items.get(i));
-				spin();
+				long intended = timed ? awaitNext() : 0;
+				Integer item = items.get(i);
+				stack.push(payloads.get(item));
+
+				if (timed) {
+					record(pushLatency, writer, Journal.Op.PUSH, intended, item);
+				}
+
+				if (counter != null) {
+					counter.increment();
+				}
+
+				work.run();
 			}
 
 			for (int i = 0; i < numOps; i++) {
-				popped.add(stack.pop());
-				spin();
+				long intended = timed ? awaitNext() : 0;
+				Object element = stack.pop();
+
+				if (timed) {
+					Integer item = payloads.itemOf(element);
+					record(popLatency, writer, Journal.Op.POP, intended, (item != null) ? item : Journal.EMPTY);
+				}
+
+				popped.add(payloads.consume(element));
+
+				if (counter != null) {
+					counter.increment();
+				}
+
+				work.run();
 			}
 
 			return popped;
 		}
 
-		private void spin() {
-			long start = System.nanoTime();
-			long end = start + workload * NANO_IN_MICROSECONDS;
+		/**
+		 * Records the latency of an operation and its journal record, if either
+		 * is enabled.
+		 */
+		private void record(LatencyRecorder latency, Journal.Writer writer, Journal.Op op, long intended,
+				int result) {
+			long end = System.nanoTime();
 
-			while (System.nanoTime() < end) {
+			if (latency != null) {
+				latency.record(end - intended);
 			}
+
+			if (writer != null) {
+				writer.record(op, intended, end, result);
+			}
+		}
+
+		/**
+		 * Returns the intended start time of the next operation, which is the
+		 * current time in a closed loop. Only called if latencies or the journal
+		 * need it, which is always the case in an open loop.
+		 */
+		private long awaitNext() {
+			return (pacer != null) ? pacer.awaitNext() : System.nanoTime();
 		}
 
 	}
@@ -0,0 +1,302 @@
+package io.github.chatzikalymnios.lfdsbenchmarker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The work a benchmark thread performs between two data structure operations.
+ *
+ * Three kinds of workload are available:
+ * <ul>
+ * <li>{@link Type#TIME}: busy-waits on <code>System.nanoTime()</code> until
+ * the duration has passed</li>
+ * <li>{@link Type#CPU}: runs a loop of dependent arithmetic tokens, whose
+ * number per microsecond is calibrated once, so the duration can be far below
+ * a microsecond and no timer is read while the workload runs</li>
+ * <li>{@link Type#MEMORY}: walks a random cycle through a private working set
+ * of the configured size, reading and writing one cache line per step, to put
+ * pressure on the caches between operations. The number of steps per
+ * microsecond is also calibrated once.</li>
+ * </ul>
+ *
+ * A Workload is immutable and shared; each thread runs it through its own
+ * {@link Runner}. The results of the token loop and of the walk are kept in a
+ * sink, so that the JIT compiler cannot remove them as dead code.
+ */
+public abstract class Workload {
+	private static final int NANO_IN_MICROSECONDS = 1000;
+	private static final int CALIBRATION_ROUNDS = 5;
+	private static final int CALIBRATION_UNITS = 1 << 22;
+	private static final int CACHE_LINE_INTS = 16; // 64 bytes
+
+	/**
+	 * Workload kinds.
+	 */
+	public static enum Type {
+		TIME, CPU, MEMORY
+	};
+
+	/*
+	 * Written only if a sink holds an (unlikely) magic value, so that sinks are
+	 * observable without being written to shared memory on every run.
+	 */
+	static volatile long blackhole;
+
+	private static volatile double cpuTokensPerMicrosecond;
+
+	protected final double microseconds;
+
+	private Workload(double microseconds) {
+		this.microseconds = microseconds;
+	}
+
+	/**
+	 * Creates a workload of the specified kind and duration.
+	 *
+	 * @param type
+	 *            the kind of workload
+	 * @param microseconds
+	 *            the duration of a single run of the workload
+	 * @param workingSetBytes
+	 *            the size of the working set of each thread (applicable to
+	 *            {@link Type#MEMORY})
+	 * @return the workload, calibrated if necessary
+	 */
+	public static Workload create(Type type, double microseconds, int workingSetBytes) {
+		switch (type) {
+		case TIME:
+			return new TimeWorkload(microseconds);
+		case CPU:
+			return new CpuWorkload(microseconds);
+		default:
+			return new MemoryWorkload(microseconds, workingSetBytes);
+		}
+	}
+
+	/**
+	 * Creates a time-based workload with the specified duration in microseconds.
+	 */
+	public static Workload time(double microseconds) {
+		return new TimeWorkload(microseconds);
+	}
+
+	/**
+	 * Creates a runner for the calling thread.
+	 *
+	 * @return a new runner
+	 */
+	public abstract Runner newRunner();
+
+	/**
+	 * Runs the workload on behalf of a single thread. A Runner is not
+	 * thread-safe.
+	 */
+	public interface Runner {
+		void run();
+	}
+
+	private static void consume(long sink) {
+		if (sink == 0x5DEECE66DL) {
+			blackhole = sink;
+		}
+	}
+
+	/**
+	 * Measures the best rate of the provided calibration loop over several
+	 * rounds, in units per microsecond.
+	 */
+	private static double calibrate(CalibrationLoop loop) {
+		long best = Long.MAX_VALUE;
+
+		for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+			long start = System.nanoTime();
+			loop.run(CALIBRATION_UNITS);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return (double) CALIBRATION_UNITS * NANO_IN_MICROSECONDS / Math.max(best, 1);
+	}
+
+	private interface CalibrationLoop {
+		void run(long units);
+	}
+
+	private static class TimeWorkload extends Workload {
+		private final long nanos;
+
+		TimeWorkload(double microseconds) {
+			super(microseconds);
+			this.nanos = Math.round(microseconds * NANO_IN_MICROSECONDS);
+		}
+
+		@Override
+		public Runner newRunner() {
+			return new Runner() {
+				@Override
+				public void run() {
+					long end = System.nanoTime() + nanos;
+
+					while (System.nanoTime() < end) {
+					}
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "time, " + microseconds + " microseconds";
+		}
+	}
+
+	private static class CpuWorkload extends Workload {
+		private final long tokens;
+
+		CpuWorkload(double microseconds) {
+			super(microseconds);
+
+			synchronized (Workload.class) {
+				if (cpuTokensPerMicrosecond == 0) {
+					final CpuRunner runner = new CpuRunner(0);
+
+					cpuTokensPerMicrosecond = calibrate(new CalibrationLoop() {
+						@Override
+						public void run(long units) {
+							runner.tokens(units);
+						}
+					});
+				}
+			}
+
+			this.tokens = Math.round(microseconds * cpuTokensPerMicrosecond);
+		}
+
+		@Override
+		public Runner newRunner() {
+			return new CpuRunner(tokens);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("cpu, %s microseconds (%d tokens at %.1f tokens/microsecond)", microseconds, tokens,
+					cpuTokensPerMicrosecond);
+		}
+	}
+
+	private static class CpuRunner implements Runner {
+		private final long tokens;
+		private long sink = ThreadLocalRandom.current().nextLong() | 1;
+
+		CpuRunner(long tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public void run() {
+			tokens(tokens);
+		}
+
+		void tokens(long count) {
+			long x = sink;
+
+			// Xorshift steps: each depends on the previous one
+			for (long i = 0; i < count; i++) {
+				x ^= x << 13;
+				x ^= x >>> 7;
+				x ^= x << 17;
+			}
+
+			sink = x;
+			consume(x);
+		}
+	}
+
+	private static class MemoryWorkload extends Workload {
+		private final int workingSetBytes;
+		private final double stepsPerMicrosecond;
+		private final long steps;
+
+		MemoryWorkload(double microseconds, int workingSetBytes) {
+			super(microseconds);
+			this.workingSetBytes = workingSetBytes;
+
+			final MemoryRunner runner = new MemoryRunner(workingSetBytes, 0);
+
+			this.stepsPerMicrosecond = calibrate(new CalibrationLoop() {
+				@Override
+				public void run(long units) {
+					runner.steps(units);
+				}
+			});
+
+			this.steps = Math.round(microseconds * stepsPerMicrosecond);
+		}
+
+		@Override
+		public Runner newRunner() {
+			return new MemoryRunner(workingSetBytes, steps);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("memory, %s microseconds (%d cache lines of a %d KB working set at %.1f "
+					+ "lines/microsecond)", microseconds, steps, workingSetBytes / 1024, stepsPerMicrosecond);
+		}
+	}
+
+	private static class MemoryRunner implements Runner {
+		private final long steps;
+
+		/*
+		 * The first int of every cache line holds the index of the next line of
+		 * a random cycle through all lines, the second one is incremented.
+		 */
+		private final int[] lines;
+		private int position;
+		private long sink;
+
+		MemoryRunner(int workingSetBytes, long steps) {
+			int numLines = Math.max(workingSetBytes / (CACHE_LINE_INTS * 4), 1);
+
+			this.steps = steps;
+			this.lines = new int[numLines * CACHE_LINE_INTS];
+
+			// Sattolo's algorithm: a random permutation with a single cycle
+			int[] order = new int[numLines];
+
+			for (int i = 0; i < numLines; i++) {
+				order[i] = i;
+			}
+
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+
+			for (int i = numLines - 1; i > 0; i--) {
+				int j = random.nextInt(i);
+				int temp = order[i];
+				order[i] = order[j];
+				order[j] = temp;
+			}
+
+			for (int i = 0; i < numLines; i++) {
+				lines[order[i] * CACHE_LINE_INTS] = order[(i + 1) % numLines] * CACHE_LINE_INTS;
+			}
+		}
+
+		@Override
+		public void run() {
+			steps(steps);
+		}
+
+		void steps(long count) {
+			int p = position;
+			long x = sink;
+
+			for (long i = 0; i < count; i++) {
+				x += ++lines[p + 1];
+				p = lines[p];
+			}
+
+			position = p;
+			sink = x;
+			consume(x);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChaseLevDequeTest {
+
+	private ChaseLevDeque<Integer> deque;
+
+	@Before
+	public void setUp() throws Exception {
+		// Small capacity to exercise growing
+		deque = new ChaseLevDeque<>(2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testPushPopSteal() {
+		assertNull(deque.popBottom());
+		assertNull(deque.steal());
+
+		deque.pushBottom(1);
+		deque.pushBottom(2);
+		deque.pushBottom(3);
+
+		assertEquals(3, (long) deque.popBottom());
+		assertEquals(1, (long) deque.steal());
+
+		deque.pushBottom(4);
+		assertEquals(2, (long) deque.steal());
+		assertEquals(4, (long) deque.popBottom());
+
+		assertNull(deque.popBottom());
+		assertNull(deque.steal());
+	}
+
+}
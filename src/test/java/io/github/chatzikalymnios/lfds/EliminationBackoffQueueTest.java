@@ -0,0 +1,52 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EliminationBackoffQueueTest {
+
+	private EliminationBackoffQueue<Integer> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		// Single-threaded operation
+		queue = new EliminationBackoffQueue<>(1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		assertNull(queue.dequeue());
+
+		queue.enqueue(1);
+		queue.enqueue(2);
+
+		assertEquals(1, (long) queue.dequeue());
+
+		queue.enqueue(3);
+		assertEquals(2, (long) queue.dequeue());
+		assertEquals(3, (long) queue.dequeue());
+
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
+	@Test
+	public void testConcurrentSize() throws InterruptedException {
+		// Four threads plus the draining test thread
+		queue = new EliminationBackoffQueue<>(5);
+		SizeTests.checkConcurrentSize(queue, 4, 10000);
+	}
+
+}
@@ -2,6 +2,12 @@ package io.github.chatzikalymnios.lfds;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -37,4 +43,95 @@ public class EliminationBackoffStackTest {
 		assertNull(stack.pop());
 	}
 
+	@Test
+	public void testArenaPushPop() {
+		stack = new EliminationBackoffStack<>(1, 1000, false, EliminationBackoffStack.Elimination.ARENA);
+
+		assertNull(stack.pop());
+
+		stack.push(1);
+		stack.push(2);
+
+		assertEquals((long) 2, (long) stack.pop());
+		assertEquals((long) 1, (long) stack.pop());
+
+		assertNull(stack.pop());
+	}
+
+	@Test
+	public void testConcurrentArenaPushPop() throws InterruptedException {
+		final int numThreads = 4;
+		final int numOps = 2000;
+		final EliminationBackoffStack<Integer> stack = new EliminationBackoffStack<>(numThreads, 100000, false,
+				EliminationBackoffStack.Elimination.ARENA);
+		final List<List<Integer>> popped = new ArrayList<>();
+		Thread[] threads = new Thread[numThreads];
+
+		for (int i = 0; i < numThreads; i++) {
+			final int firstItem = i * numOps;
+			final List<Integer> myPopped = new ArrayList<>();
+			popped.add(myPopped);
+
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// Reach the exchange arena even if no CAS on the top of stack fails
+					for (int j = 0; j < numOps; j++) {
+						if (!stack.tryEliminatePush(firstItem + j)) {
+							stack.push(firstItem + j);
+						}
+
+						Integer item = stack.tryEliminatePop();
+
+						if (item == null) {
+							item = stack.pop();
+						}
+
+						if (item != null) {
+							myPopped.add(item);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Set<Integer> items = new HashSet<>();
+
+		for (List<Integer> myPopped : popped) {
+			for (Integer item : myPopped) {
+				assertTrue("Duplicate item " + item, items.add(item));
+			}
+		}
+
+		Integer item;
+
+		while ((item = stack.pop()) != null) {
+			assertTrue("Duplicate item " + item, items.add(item));
+		}
+
+		assertEquals("Lost items", numThreads * numOps, items.size());
+		assertTrue(stack.getStats().get("pushEliminations") > 0);
+		assertEquals(stack.getStats().get("pushEliminations"), stack.getStats().get("popEliminations"));
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(stack);
+	}
+
+	@Test
+	public void testConcurrentSize() throws InterruptedException {
+		// Four threads plus the draining test thread
+		stack = new EliminationBackoffStack<>(5);
+		SizeTests.checkConcurrentSize(stack, 4, 10000);
+	}
+
 }
@@ -0,0 +1,119 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlatCombiningQueueTest {
+
+	private FlatCombiningQueue<Integer> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new FlatCombiningQueue<>();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		assertNull(queue.dequeue());
+
+		queue.enqueue(1);
+		queue.enqueue(2);
+
+		assertEquals(1, (long) queue.dequeue());
+
+		queue.enqueue(3);
+		assertEquals(2, (long) queue.dequeue());
+		assertEquals(3, (long) queue.dequeue());
+
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
+	@Test
+	public void testConcurrentProducersConsumers() throws InterruptedException {
+		final int numProducers = 4;
+		final int numConsumers = 4;
+		final int numOps = 20000;
+		final FlatCombiningQueue<Integer> queue = new FlatCombiningQueue<>();
+		final AtomicInteger numDequeued = new AtomicInteger(0);
+		final List<List<Integer>> dequeued = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+
+		for (int i = 0; i < numProducers; i++) {
+			final int firstItem = i * numOps;
+
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < numOps; j++) {
+						queue.enqueue(firstItem + j);
+					}
+				}
+			}));
+		}
+
+		// The consumers poll until every item has been dequeued
+		for (int i = 0; i < numConsumers; i++) {
+			final List<Integer> myDequeued = new ArrayList<>();
+			dequeued.add(myDequeued);
+
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (numDequeued.get() < numProducers * numOps) {
+						Integer item = queue.dequeue();
+
+						if (item != null) {
+							myDequeued.add(item);
+							numDequeued.incrementAndGet();
+						}
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Set<Integer> items = new HashSet<>();
+
+		for (List<Integer> myDequeued : dequeued) {
+			for (Integer item : myDequeued) {
+				assertTrue("Duplicate item " + item, items.add(item));
+			}
+		}
+
+		assertNull(queue.dequeue());
+		assertEquals("Lost items", numProducers * numOps, items.size());
+
+		// Some passes served the requests of other threads
+		Map<String, Long> stats = queue.getStats();
+		assertTrue(stats.get("combinedOperations") > stats.get("combiningPasses"));
+	}
+
+}
@@ -0,0 +1,110 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlatCombiningStackTest {
+
+	private FlatCombiningStack<Integer> stack;
+
+	@Before
+	public void setUp() throws Exception {
+		stack = new FlatCombiningStack<>();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testPushPop() {
+		assertNull(stack.pop());
+
+		stack.push(1);
+		stack.push(2);
+
+		assertEquals((long) 2, (long) stack.pop());
+
+		stack.push(3);
+		assertEquals((long) 3, (long) stack.pop());
+		assertEquals((long) 1, (long) stack.pop());
+
+		assertNull(stack.pop());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(stack);
+	}
+
+	@Test
+	public void testConcurrentPushPop() throws InterruptedException {
+		final int numThreads = 8;
+		final int numOps = 20000;
+		final FlatCombiningStack<Integer> stack = new FlatCombiningStack<>();
+		final List<List<Integer>> removed = new ArrayList<>();
+		Thread[] threads = new Thread[numThreads];
+
+		for (int i = 0; i < numThreads; i++) {
+			final int firstItem = i * numOps;
+			final List<Integer> myRemoved = new ArrayList<>();
+			removed.add(myRemoved);
+
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < numOps; j++) {
+						stack.push(firstItem + j);
+						Integer item = stack.pop();
+
+						if (item != null) {
+							myRemoved.add(item);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Map<String, Long> stats = stack.getStats();
+		Set<Integer> items = new HashSet<>();
+
+		for (List<Integer> myRemoved : removed) {
+			for (Integer item : myRemoved) {
+				assertTrue("Duplicate item " + item, items.add(item));
+			}
+		}
+
+		Integer item;
+
+		while ((item = stack.pop()) != null) {
+			assertTrue("Duplicate item " + item, items.add(item));
+		}
+
+		assertEquals("Lost items", numThreads * numOps, items.size());
+
+		// Every request was served once, some passes served other threads and paired pushes with pops
+		assertEquals(2L * numThreads * numOps, (long) stats.get("combinedOperations"));
+		assertTrue(stats.get("combinedOperations") > stats.get("combiningPasses"));
+		assertTrue(stats.get("eliminatedPairs") > 0);
+	}
+
+}
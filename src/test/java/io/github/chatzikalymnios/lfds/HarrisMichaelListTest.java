@@ -0,0 +1,46 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HarrisMichaelListTest {
+
+	private HarrisMichaelList<Integer> list;
+
+	@Before
+	public void setUp() throws Exception {
+		list = new HarrisMichaelList<>();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testAddRemoveContains() {
+		assertFalse(list.contains(1));
+		assertFalse(list.remove(1));
+
+		assertTrue(list.add(2));
+		assertTrue(list.add(1));
+		assertTrue(list.add(3));
+		assertFalse(list.add(2));
+
+		assertTrue(list.contains(1));
+		assertTrue(list.contains(2));
+		assertTrue(list.contains(3));
+
+		assertTrue(list.remove(2));
+		assertFalse(list.remove(2));
+		assertFalse(list.contains(2));
+		assertTrue(list.contains(3));
+
+		assertTrue(list.add(2));
+		assertTrue(list.contains(2));
+	}
+
+}
@@ -0,0 +1,114 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KoganPetrankQueueTest {
+
+	private KoganPetrankQueue<Integer> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new KoganPetrankQueue<>(1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		assertNull(queue.dequeue());
+
+		queue.enqueue(1);
+		queue.enqueue(2);
+
+		assertEquals(1, (long) queue.dequeue());
+
+		queue.enqueue(3);
+		assertEquals(2, (long) queue.dequeue());
+		assertEquals(3, (long) queue.dequeue());
+
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
+	@Test
+	public void testConcurrentEnqueueDequeue() throws InterruptedException {
+		final int numThreads = 4;
+		final int numOps = 5000;
+		// The worker threads plus the draining test thread
+		final KoganPetrankQueue<Integer> queue = new KoganPetrankQueue<>(numThreads + 1);
+		final List<List<Integer>> dequeued = new ArrayList<>();
+		Thread[] threads = new Thread[numThreads];
+
+		for (int i = 0; i < numThreads; i++) {
+			final int firstItem = i * numOps;
+			final List<Integer> myDequeued = new ArrayList<>();
+			dequeued.add(myDequeued);
+
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < numOps; j++) {
+						queue.enqueue(firstItem + j);
+						Integer item = queue.dequeue();
+
+						if (item != null) {
+							myDequeued.add(item);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Set<Integer> items = new HashSet<>();
+
+		for (List<Integer> myDequeued : dequeued) {
+			int[] lastItem = new int[numThreads];
+
+			for (Integer item : myDequeued) {
+				assertTrue("Duplicate item " + item, items.add(item));
+
+				// Each thread dequeues the items of every other thread in FIFO order
+				int producer = item / numOps;
+				assertTrue("Out of order item " + item, item >= lastItem[producer]);
+				lastItem[producer] = item;
+			}
+		}
+
+		Integer item;
+
+		while ((item = queue.dequeue()) != null) {
+			assertTrue("Duplicate item " + item, items.add(item));
+		}
+
+		assertEquals("Lost items", numThreads * numOps, items.size());
+
+		long numOperations = queue.getStats().get("enqueues") + queue.getStats().get("dequeues");
+		assertTrue(queue.getStats().get("helpedOperations") <= numOperations);
+	}
+
+}
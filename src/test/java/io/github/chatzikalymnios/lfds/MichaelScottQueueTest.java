@@ -36,4 +36,9 @@ public class MichaelScottQueueTest {
 		assertNull(queue.dequeue());
 	}
 
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
 }
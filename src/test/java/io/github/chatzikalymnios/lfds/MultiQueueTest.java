@@ -0,0 +1,66 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiQueueTest {
+
+	private MultiQueue<Integer> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new MultiQueue<>(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		assertNull(queue.dequeue());
+
+		for (int i = 0; i < 100; i++) {
+			queue.enqueue(i);
+		}
+
+		Set<Integer> dequeued = new HashSet<>();
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(dequeued.add(queue.dequeue()));
+		}
+
+		assertEquals(100, dequeued.size());
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSingleQueueIsFifo() {
+		queue = new MultiQueue<>(1);
+
+		queue.enqueue(1);
+		queue.enqueue(2);
+
+		assertEquals(1, (long) queue.dequeue());
+
+		queue.enqueue(3);
+		assertEquals(2, (long) queue.dequeue());
+		assertEquals(3, (long) queue.dequeue());
+
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedStackTest {
+
+	private ShardedStack<Integer> stack;
+
+	@Before
+	public void setUp() throws Exception {
+		stack = new ShardedStack<>(2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testPushPop() {
+		assertNull(stack.pop());
+
+		stack.push(1);
+		stack.push(2);
+
+		assertEquals((long) 2, (long) stack.pop());
+
+		stack.push(3);
+		assertEquals((long) 3, (long) stack.pop());
+		assertEquals((long) 1, (long) stack.pop());
+
+		assertNull(stack.pop());
+	}
+
+	@Test
+	public void testSteal() throws InterruptedException {
+		// Claim the first shard for this thread
+		assertNull(stack.pop());
+
+		Thread other = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				stack.push(1);
+			}
+		});
+
+		other.start();
+		other.join();
+
+		assertEquals((long) 1, (long) stack.pop());
+		assertNull(stack.pop());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(stack);
+	}
+
+}
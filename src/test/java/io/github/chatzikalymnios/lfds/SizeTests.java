@@ -0,0 +1,189 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks of <code>size()</code> and <code>isEmpty()</code> shared by the stack
+ * and queue tests.
+ */
+final class SizeTests {
+
+	/*
+	 * The inserts, removes and size of a stack or a queue.
+	 */
+	private interface Target {
+		void insert(Integer item);
+
+		Integer remove();
+
+		int size();
+
+		boolean isEmpty();
+	}
+
+	private SizeTests() {
+	}
+
+	/**
+	 * Checks the size of the provided empty stack after single-threaded pushes
+	 * and pops.
+	 */
+	static void checkSize(LockFreeStack<Integer> stack) {
+		checkSize(target(stack));
+	}
+
+	/**
+	 * Checks the size of the provided empty queue after single-threaded enqueues
+	 * and dequeues.
+	 */
+	static void checkSize(LockFreeQueue<Integer> queue) {
+		checkSize(target(queue));
+	}
+
+	/**
+	 * Checks the size of the provided empty stack after <code>numThreads</code>
+	 * threads concurrently pushed <code>numOps</code> items each and popped after
+	 * every other push, so that pushes and pops overlap and may eliminate each
+	 * other. The calling thread accesses the stack as well, so the stack must
+	 * support <code>numThreads + 1</code> threads.
+	 */
+	static void checkConcurrentSize(LockFreeStack<Integer> stack, int numThreads, int numOps)
+			throws InterruptedException {
+		checkConcurrentSize(target(stack), numThreads, numOps);
+	}
+
+	/**
+	 * Checks the size of the provided empty queue after <code>numThreads</code>
+	 * threads concurrently enqueued <code>numOps</code> items each and dequeued
+	 * after every other enqueue, so that enqueues and dequeues overlap and may
+	 * eliminate each other. The calling thread accesses the queue as well, so the
+	 * queue must support <code>numThreads + 1</code> threads.
+	 */
+	static void checkConcurrentSize(LockFreeQueue<Integer> queue, int numThreads, int numOps)
+			throws InterruptedException {
+		checkConcurrentSize(target(queue), numThreads, numOps);
+	}
+
+	private static void checkSize(Target target) {
+		assertTrue(target.isEmpty());
+		assertEquals(0, target.size());
+
+		for (int i = 0; i < 10; i++) {
+			target.insert(i);
+		}
+
+		assertFalse(target.isEmpty());
+		assertEquals(10, target.size());
+
+		for (int i = 0; i < 4; i++) {
+			target.remove();
+		}
+
+		assertEquals(6, target.size());
+
+		while (target.remove() != null) {
+		}
+
+		// Removes that find the data structure empty do not change the size
+		assertTrue(target.isEmpty());
+		assertEquals(0, target.size());
+	}
+
+	private static void checkConcurrentSize(final Target target, int numThreads, final int numOps)
+			throws InterruptedException {
+		final AtomicInteger numRemoved = new AtomicInteger(0);
+		Thread[] threads = new Thread[numThreads];
+
+		for (int i = 0; i < numThreads; i++) {
+			final int firstItem = i * numOps;
+
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < numOps; j++) {
+						target.insert(firstItem + j);
+
+						if (j % 2 == 1 && target.remove() != null) {
+							numRemoved.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// At quiescence, eliminated pairs must have left the size unchanged
+		int expected = numThreads * numOps - numRemoved.get();
+		assertEquals(expected, target.size());
+
+		int remaining = 0;
+
+		while (target.remove() != null) {
+			remaining++;
+		}
+
+		assertEquals(expected, remaining);
+		assertTrue(target.isEmpty());
+		assertEquals(0, target.size());
+	}
+
+	private static Target target(final LockFreeStack<Integer> stack) {
+		return new Target() {
+			@Override
+			public void insert(Integer item) {
+				stack.push(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return stack.pop();
+			}
+
+			@Override
+			public int size() {
+				return stack.size();
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return stack.isEmpty();
+			}
+		};
+	}
+
+	private static Target target(final LockFreeQueue<Integer> queue) {
+		return new Target() {
+			@Override
+			public void insert(Integer item) {
+				queue.enqueue(item);
+			}
+
+			@Override
+			public Integer remove() {
+				return queue.dequeue();
+			}
+
+			@Override
+			public int size() {
+				return queue.size();
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return queue.isEmpty();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,66 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SkipListPriorityQueueTest {
+
+	private SkipListPriorityQueue<Integer> pq;
+
+	@Before
+	public void setUp() throws Exception {
+		pq = new SkipListPriorityQueue<>();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testInsertDeleteMin() {
+		assertNull(pq.deleteMin());
+
+		pq.insert(3);
+		pq.insert(1);
+		pq.insert(2);
+		pq.insert(1);
+
+		assertEquals(1, (long) pq.deleteMin());
+		assertEquals(1, (long) pq.deleteMin());
+
+		pq.insert(0);
+		assertEquals(0, (long) pq.deleteMin());
+		assertEquals(2, (long) pq.deleteMin());
+		assertEquals(3, (long) pq.deleteMin());
+
+		assertNull(pq.deleteMin());
+	}
+
+	@Test
+	public void testRelaxedDeleteMinRemovesEveryElement() {
+		SkipListPriorityQueue<Integer> relaxed = new SkipListPriorityQueue<>(16);
+		Set<Integer> removed = new HashSet<>();
+
+		for (int i = 0; i < 1000; i++) {
+			relaxed.insert(i);
+		}
+
+		Integer data;
+
+		while ((data = relaxed.deleteMin()) != null) {
+			assertTrue(removed.add(data));
+		}
+
+		assertEquals(1000, removed.size());
+		assertNull(relaxed.deleteMin());
+	}
+
+}
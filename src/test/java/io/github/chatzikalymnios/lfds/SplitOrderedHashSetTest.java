@@ -0,0 +1,44 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SplitOrderedHashSetTest {
+
+	private SplitOrderedHashSet<Integer> set;
+
+	@Before
+	public void setUp() throws Exception {
+		set = new SplitOrderedHashSet<>();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testAddRemoveContains() {
+		// Enough items to trigger several resizes
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(set.add(i));
+		}
+
+		assertFalse(set.add(500));
+
+		for (int i = 0; i < 1000; i += 2) {
+			assertTrue(set.remove(i));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(set.contains(i) == (i % 2 == 1));
+		}
+
+		assertFalse(set.remove(0));
+		assertFalse(set.contains(1000));
+	}
+
+}
@@ -0,0 +1,54 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.chatzikalymnios.lfds.TimestampedStack.Timestamping;
+
+public class TimestampedStackTest {
+
+	@Before
+	public void setUp() throws Exception {
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testPushPop() {
+		for (Timestamping timestamping : Timestamping.values()) {
+			// Single-threaded operation
+			TimestampedStack<Integer> stack = new TimestampedStack<>(1, timestamping);
+
+			assertNull(stack.pop());
+
+			stack.push(1);
+			stack.push(2);
+
+			assertEquals((long) 2, (long) stack.pop());
+
+			stack.push(3);
+			assertEquals((long) 3, (long) stack.pop());
+			assertEquals((long) 1, (long) stack.pop());
+
+			assertNull(stack.pop());
+		}
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(new TimestampedStack<Integer>(1, Timestamping.ATOMIC));
+	}
+
+	@Test
+	public void testConcurrentSize() throws InterruptedException {
+		// Four threads plus the draining test thread
+		SizeTests.checkConcurrentSize(new TimestampedStack<Integer>(5, Timestamping.ATOMIC), 4, 10000);
+	}
+
+}
@@ -0,0 +1,62 @@
+package io.github.chatzikalymnios.lfds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UnrolledQueueTest {
+
+	private UnrolledQueue<Integer> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new UnrolledQueue<>(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		assertNull(queue.dequeue());
+
+		queue.enqueue(1);
+		queue.enqueue(2);
+
+		assertEquals(1, (long) queue.dequeue());
+
+		queue.enqueue(3);
+		assertEquals(2, (long) queue.dequeue());
+		assertEquals(3, (long) queue.dequeue());
+
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testAcrossSegments() {
+		for (int i = 0; i < 10; i++) {
+			queue.enqueue(i);
+		}
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, (long) queue.dequeue());
+		}
+
+		assertNull(queue.dequeue());
+
+		// Dequeues on an empty queue must not lose later items
+		queue.enqueue(10);
+		assertEquals(10, (long) queue.dequeue());
+		assertNull(queue.dequeue());
+	}
+
+	@Test
+	public void testSize() {
+		SizeTests.checkSize(queue);
+	}
+
+}